@@ -0,0 +1,96 @@
+package com.example.agribiz;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compares a JMH JSON result with the committed baseline and flags any benchmark that got slower than the
+// tolerance allows while the two confidence intervals don't overlap, so a noisy run alone isn't flagged.
+// Scores only compare on the machine that recorded the baseline, so regressions are warnings unless
+// failOnRegression is true. Benchmarks missing from either side are listed but never fail the run.
+// Usage: BaselineComparison <result.json> <baseline.json> <tolerance, e.g. 0.2> [failOnRegression]
+public final class BaselineComparison {
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path resultFile = Path.of(args[0]);
+        Path baselineFile = Path.of(args[1]);
+        double tolerance = Double.parseDouble(args[2]);
+        boolean failOnRegression = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (!Files.exists(baselineFile)) {
+            System.out.printf("No baseline at %s; copy %s there to start tracking%n", baselineFile, resultFile);
+            return;
+        }
+
+        Map<String, JsonNode> results = read(resultFile);
+        Map<String, JsonNode> baseline = read(baselineFile);
+
+        int regressions = 0;
+        System.out.printf("%-90s %12s %12s %9s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+            JsonNode current = entry.getValue();
+            JsonNode previous = baseline.get(entry.getKey());
+            String unit = current.path("primaryMetric").path("scoreUnit").asText();
+            double score = current.path("primaryMetric").path("score").asDouble();
+            if (previous == null) {
+                System.out.printf("%-90s %12s %12.3f %9s  %s%n", entry.getKey(), "-", score, "new", unit);
+                continue;
+            }
+
+            double before = previous.path("primaryMetric").path("score").asDouble();
+            double error = scoreError(current);
+            double beforeError = scoreError(previous);
+            // Throughput is better when higher, every other JMH mode reports time per operation
+            boolean higherIsBetter = "thrpt".equals(current.path("mode").asText());
+            double slowdown = higherIsBetter ? (before - score) / before : (score - before) / before;
+            boolean separated = higherIsBetter
+                    ? score + error < before - beforeError
+                    : score - error > before + beforeError;
+            boolean regressed = slowdown > tolerance && separated;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %12.3f %12.3f %+8.1f%%  %s%s%n", entry.getKey(), before, score,
+                    (score - before) / before * 100, unit, regressed ? "  REGRESSED" : "");
+        }
+        baseline.keySet().stream()
+                .filter(key -> !results.containsKey(key))
+                .forEach(key -> System.out.printf("%-90s not run%n", key));
+
+        if (regressions > 0) {
+            System.out.printf("%s: %d benchmark(s) more than %.0f%% slower than %s%n",
+                    failOnRegression ? "FAILED" : "WARNING", regressions, tolerance * 100, baselineFile);
+            if (failOnRegression) {
+                System.exit(1);
+            }
+        }
+    }
+
+    // JMH writes NaN when there were too few iterations to compute one
+    private static double scoreError(JsonNode result) {
+        double error = result.path("primaryMetric").path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    // Keyed by benchmark method plus its @Param values, since one method yields a result per combination
+    private static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.agribiz.CustomAnnotations;
+
+import com.example.agribiz.Dto.Request.RegisterRequest;
+import com.example.agribiz.Model.Role;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// The check on its own, and the whole RegisterRequest validation it runs inside
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class PasswordMatchesValidatorBenchmark {
+
+    private final PasswordMatchesValidator validator = new PasswordMatchesValidator();
+    private ValidatorFactory validatorFactory;
+    private Validator beanValidator;
+    private RegisterRequest matching;
+    private RegisterRequest mismatched;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        beanValidator = validatorFactory.getValidator();
+        matching = request("Harvest2024", "Harvest2024");
+        mismatched = request("Harvest2024", "Harvest2025");
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public boolean matching() {
+        return validator.isValid(matching, null);
+    }
+
+    @Benchmark
+    public boolean mismatched() {
+        return validator.isValid(mismatched, null);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<RegisterRequest>> validateRegisterRequest() {
+        return beanValidator.validate(matching);
+    }
+
+    private static RegisterRequest request(String password, String confirmPassword) {
+        return RegisterRequest.builder()
+                .firstName("Ama")
+                .lastName("Owusu")
+                .email("ama@example.com")
+                .password(password)
+                .confirmPassword(confirmPassword)
+                .role(Role.FARMER)
+                .build();
+    }
+}
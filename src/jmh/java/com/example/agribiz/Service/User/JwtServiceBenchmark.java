@@ -0,0 +1,67 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Signing, the verified-token cache hit every authenticated request takes, and the full parse behind a miss
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "secretKey", "NzJlM2I1ZTQ5ZmE2NGQ4Y2E5YjE4ZjU0YzI3ZDBlNjFhOWIzYzVkNGU3ZjgwOTFhMmIzYzRkNWU2Zjc4OTBh");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheMaxSize", 10_000L);
+        jwtService.init();
+
+        user = User.builder()
+                .id(42L)
+                .firstName("Ama")
+                .lastName("Owusu")
+                .email("ama@example.com")
+                .password("hash")
+                .role(Role.FARMER)
+                .build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public String parseToken() {
+        return jwtService.extractClaim(token, Claims::getSubject);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Issue-then-verify cycles from several threads against the in-memory store; email delivery is stubbed out
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class OtpServiceBenchmark {
+
+    private static final ThreadLocal<String> LAST_CODE = new ThreadLocal<>();
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        InMemoryOtpStore store;
+        OtpService otpService;
+
+        @Setup
+        public void setUp() {
+            store = new InMemoryOtpStore(100_000, 1000, 1024);
+            EmailService emailService = new EmailService(null, null) {
+                @Override
+                public void sendVerificationEmail(User user, String otp) {
+                    LAST_CODE.set(otp);
+                }
+            };
+            otpService = new OtpService(emailService, store, new SimpleMeterRegistry());
+            ReflectionTestUtils.setField(otpService, "maxAttempts", 5);
+        }
+
+        // Nothing ticks the timer wheel here, so sweep it between iterations to keep the heap flat
+        @TearDown(Level.Iteration)
+        public void sweep() {
+            store.advance(System.currentTimeMillis() + Duration.ofMinutes(11).toMillis());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private static final AtomicInteger NEXT = new AtomicInteger();
+
+        String email;
+
+        @Setup
+        public void setUp() {
+            email = "farmer" + NEXT.incrementAndGet() + "@example.com";
+        }
+    }
+
+    @Benchmark
+    public boolean generateAndVerify(Shared shared, Caller caller) {
+        shared.otpService.generateAndSendOtp(caller.email, "Ama Owusu");
+        return shared.otpService.verifyOtp(caller.email, LAST_CODE.get());
+    }
+
+    @Benchmark
+    public boolean verifyWrongCode(Shared shared, Caller caller) {
+        shared.otpService.generateAndSendOtp(caller.email, "Ama Owusu");
+        return shared.otpService.verifyOtp(caller.email, "000000");
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.agribiz.Service;
+
+import com.example.agribiz.Dto.Response.UserInfo;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import com.example.agribiz.Repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class UserInfoMappingBenchmark {
+
+    private final User user = User.builder()
+            .id(42L)
+            .firstName("Ama")
+            .lastName("Owusu")
+            .email("ama@example.com")
+            .password("hash")
+            .role(Role.FARMER)
+            .profileImageUrl("https://res.cloudinary.com/agribiz/image/upload/avatar.jpg")
+            .profileThumbnailUrl("https://res.cloudinary.com/agribiz/image/upload/thumb.jpg")
+            .nationalId("GHA-123456789-0")
+            .address("Techiman, Bono East")
+            .phoneNumber("+233201234567")
+            .bio("Potato farmer")
+            .build();
+
+    // A repository that always answers from memory, so only the lookup plumbing and the mapping are measured
+    private final UserService userService = new UserService(inMemoryRepository(user), null, null, null, null, null,
+            null, null);
+
+    @Benchmark
+    public UserInfo getUserProfile() {
+        return userService.getUserProfile("ama@example.com");
+    }
+
+    private static UserRepository inMemoryRepository(User user) {
+        Optional<User> found = Optional.of(user);
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findByEmail")) {
+                        return found;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
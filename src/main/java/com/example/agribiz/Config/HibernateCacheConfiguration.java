@@ -0,0 +1,70 @@
+package com.example.agribiz.Config;
+
+import com.example.agribiz.Model.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.OptionalLong;
+import java.util.Set;
+
+// Second-level cache for User (entity and email natural-id regions) on bounded Caffeine caches
+@Configuration
+@ConditionalOnProperty(name = "app.hibernate.second-level-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class HibernateCacheConfiguration {
+
+    private static final String NATURAL_ID_SUFFIX = "##NaturalId";
+
+    @Value("${app.hibernate.second-level-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.hibernate.second-level-cache.ttl:10m}")
+    private Duration ttl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>()
+                .setMaximumSize(OptionalLong.of(maxSize))
+                // The TTL bounds staleness if a cluster invalidation is ever missed
+                .setExpireAfterWrite(OptionalLong.of(ttl.toNanos()))
+                // Hibernate caches its own immutable disassembled state, so copying on every read is wasted work
+                .setStoreByValue(false)
+                .setStatisticsEnabled(true);
+
+        Set<String> existing = new HashSet<>();
+        cacheManager.getCacheNames().forEach(existing::add);
+        // getCache() on an unknown name makes Caffeine parse the region name as a config path, which "##" breaks
+        for (String region : new String[]{User.class.getName(), User.class.getName() + NATURAL_ID_SUFFIX}) {
+            if (!existing.contains(region)) {
+                cacheManager.createCache(region, configuration);
+            }
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create-warn");
+            // Feeds the hibernate.* Micrometer meters (cache hits, misses, puts per region)
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+}
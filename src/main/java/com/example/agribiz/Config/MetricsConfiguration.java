@@ -0,0 +1,42 @@
+package com.example.agribiz.Config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Latency distributions for our own agribiz.* timers and summaries, plus @Timed support
+@Configuration
+public class MetricsConfiguration {
+
+    public static final String PREFIX = "agribiz.";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    // Histogram buckets let a backend aggregate percentiles across nodes; the client-side percentiles
+    // show up in /actuator/metrics under a phi tag. management.metrics.distribution.* overrides both
+    @Bean
+    public MeterFilter agribizDistributions() {
+        DistributionStatisticConfig defaults = DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .percentiles(PERCENTILES)
+                .build();
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return id.getName().startsWith(PREFIX) ? config.merge(defaults) : config;
+            }
+        };
+    }
+
+    // Boot only creates this with management.observations.annotations.enabled
+    @Bean
+    @ConditionalOnMissingBean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
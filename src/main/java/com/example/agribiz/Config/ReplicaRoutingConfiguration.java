@@ -0,0 +1,82 @@
+package com.example.agribiz.Config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Read-only transactions on replica pools (app.datasource.routing.replicas), everything else on the
+// spring.datasource.* primary; replaces the auto-configured pool when app.datasource.routing.enabled is set
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class ReplicaRoutingConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties dataSourceProperties,
+            ReplicaRoutingProperties properties,
+            MeterRegistry meterRegistry
+    ) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaRoutingProperties.Replica> configured = properties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReplicaRoutingProperties.Replica replica = configured.get(i);
+            if (replica.getUrl() == null) {
+                throw new IllegalStateException("app.datasource.routing.replicas[" + i + "].url is required");
+            }
+            String name = Objects.requireNonNullElse(replica.getName(), "replica-" + i);
+            replicas.put(name, replicaPool(name, replica, dataSourceProperties, meterRegistry));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, properties, meterRegistry);
+    }
+
+    // Everything (JPA, JdbcTemplate, Flyway) uses this one; outside a read-only transaction it is the primary
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    private static HikariDataSource replicaPool(
+            String name,
+            ReplicaRoutingProperties.Replica replica,
+            DataSourceProperties primary,
+            MeterRegistry meterRegistry
+    ) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(replica.getUrl());
+        pool.setUsername(replica.getUsername() != null ? replica.getUsername() : primary.determineUsername());
+        pool.setPassword(replica.getPassword() != null ? replica.getPassword() : primary.determinePassword());
+        pool.setMaximumPoolSize(replica.getMaximumPoolSize());
+        pool.setConnectionTimeout(replica.getConnectionTimeout().toMillis());
+        pool.setReadOnly(true);
+        // A replica that is down at startup is skipped until it comes up, rather than failing the boot
+        pool.setInitializationFailTimeout(-1);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.agribiz.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Connections taken inside a read-only transaction go to a replica within the lag tolerance, round robin;
+// everything else goes to the primary. Only correct behind a LazyConnectionDataSourceProxy, which defers
+// the choice to the first statement, after the transaction has been marked read-only
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final ReplicaRoutingProperties properties;
+    // Seconds behind the primary, NaN when unknown or unreachable
+    private final Map<String, Double> lagSeconds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    private volatile List<String> eligible = List.of();
+    private ScheduledExecutorService monitor;
+
+    public ReplicaRoutingDataSource(
+            DataSource primary,
+            Map<String, DataSource> replicas,
+            ReplicaRoutingProperties properties,
+            MeterRegistry meterRegistry
+    ) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.properties = properties;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        for (String name : replicas.keySet()) {
+            lagSeconds.put(name, Double.NaN);
+            Gauge.builder("agribiz.datasource.replica.lag", lagSeconds, lags -> lags.get(name))
+                    .tag("replica", name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+        replicaReads = Counter.builder("agribiz.datasource.reads").tag("target", "replica").register(meterRegistry);
+        primaryReads = Counter.builder("agribiz.datasource.reads").tag("target", "primary").register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        if (replicas.isEmpty()) {
+            log.warn("Replica routing is enabled but no replicas are configured; every read goes to the primary");
+            return;
+        }
+        // Checked once up front so reads start on the replicas rather than piling onto the primary
+        checkReplicas();
+        long interval = properties.getLagCheckInterval().toMillis();
+        // Its own thread: a replica that is down blocks a check for up to its connection timeout
+        monitor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replica-lag-monitor").daemon(true).factory());
+        monitor.scheduleWithFixedDelay(this::checkReplicas, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            List<String> candidates = eligible;
+            if (!candidates.isEmpty()) {
+                return candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                primaryReads.increment();
+            }
+            return primary.getConnection();
+        }
+
+        try {
+            Connection connection = replicas.get(key).getConnection();
+            replicaReads.increment();
+            return connection;
+        } catch (SQLException e) {
+            // The read still succeeds; the replica is back in rotation once a lag check reaches it
+            log.warn("Replica {} unavailable, reading from the primary: {}", key, e.getMessage());
+            lagSeconds.put((String) key, Double.NaN);
+            updateEligible();
+            primaryReads.increment();
+            return primary.getConnection();
+        }
+    }
+
+    void checkReplicas() {
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            lagSeconds.put(replica.getKey(), measureLag(replica.getKey(), replica.getValue()));
+        }
+        updateEligible();
+    }
+
+    List<String> eligibleReplicas() {
+        return eligible;
+    }
+
+    private double measureLag(String name, DataSource replica) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout((int) Math.max(1, properties.getLagCheckInterval().toSeconds()));
+            try (ResultSet resultSet = statement.executeQuery(properties.getLagQuery())) {
+                if (resultSet.next()) {
+                    double lag = resultSet.getDouble(1);
+                    return resultSet.wasNull() ? Double.NaN : lag;
+                }
+                return Double.NaN;
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Logged once, when updateEligible() drops the replica
+            log.debug("Lag check failed for replica {}: {}", name, e.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    private synchronized void updateEligible() {
+        double maxLag = properties.getMaxLag().toMillis() / 1000.0;
+        // NaN compares false, so unreachable replicas drop out here
+        List<String> withinLag = replicas.keySet().stream()
+                .filter(name -> lagSeconds.get(name) <= maxLag)
+                .toList();
+        if (withinLag.isEmpty() && properties.getFallback() == ReplicaRoutingProperties.LagFallback.LEAST_LAGGING) {
+            withinLag = replicas.keySet().stream()
+                    .filter(name -> !lagSeconds.get(name).isNaN())
+                    .min(Comparator.comparingDouble(lagSeconds::get))
+                    .map(List::of)
+                    .orElse(List.of());
+        }
+
+        if (!withinLag.equals(eligible)) {
+            log.info("Read-only transactions now go to {} (replica lag in seconds: {})",
+                    withinLag.isEmpty() ? "the primary" : withinLag, lagSeconds);
+        }
+        eligible = withinLag;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (monitor != null) {
+            monitor.shutdownNow();
+        }
+        // The primary belongs to its own bean
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
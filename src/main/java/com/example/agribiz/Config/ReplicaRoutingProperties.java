@@ -0,0 +1,57 @@
+package com.example.agribiz.Config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "app.datasource.routing")
+@Data
+public class ReplicaRoutingProperties {
+
+    // Off by default: spring.datasource.* then backs a single pool as before
+    private boolean enabled = false;
+
+    // Replicas further behind the primary than this are skipped until they catch up
+    private Duration maxLag = Duration.ofSeconds(2);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    private LagFallback fallback = LagFallback.PRIMARY;
+
+    // Seconds the replica is behind; 0 when it has replayed everything it received or isn't in recovery
+    private String lagQuery = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE extract(epoch FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    // What a read-only transaction gets when no replica is within maxLag
+    public enum LagFallback {
+        // Fresh data, at the price of moving the read load onto the primary
+        PRIMARY,
+        // The replica that is furthest along, however stale; the primary only when none is reachable
+        LEAST_LAGGING
+    }
+
+    // Username and password default to the primary's
+    @Data
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+        // Kept short: a replica that can't hand out a connection in time is skipped for the primary
+        private Duration connectionTimeout = Duration.ofSeconds(2);
+    }
+
+    // How long after a commit a read routed to a replica may still return the old row
+    public Duration staleReadWindow() {
+        return maxLag.plus(lagCheckInterval);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.agribiz.Config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Runs the outbox dispatcher, reaper, OTP sweeps and purgers. Tests turn it off and call those jobs directly,
+// so a scheduled run never races the one under test
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfiguration {
+}
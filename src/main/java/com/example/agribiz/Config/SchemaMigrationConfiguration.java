@@ -0,0 +1,32 @@
+package com.example.agribiz.Config;
+
+import org.flywaydb.database.postgresql.PostgreSQLConfigurationExtension;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Flyway owns the schema (src/main/resources/db/migration); Hibernate only checks its mappings against it
+@Configuration
+public class SchemaMigrationConfiguration {
+
+    @Bean
+    public FlywayConfigurationCustomizer baselineExistingSchema() {
+        return configuration -> {
+            // Databases built by the old auto-DDL already match V1, so they are marked as V1 rather than rejected
+            configuration
+                    .baselineOnMigrate(true)
+                    .baselineVersion("1");
+            // The default lock holds a transaction open, which CREATE INDEX CONCURRENTLY would wait on forever
+            configuration.getPluginRegister()
+                    .getPlugin(PostgreSQLConfigurationExtension.class)
+                    .setTransactionalLock(false);
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer validateSchema() {
+        return properties -> properties.put(AvailableSettings.HBM2DDL_AUTO, "validate");
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.agribiz.Controller;
+
+import com.example.agribiz.Dto.Request.UserDirectoryFilter;
+import com.example.agribiz.Dto.Response.ApiResponse;
+import com.example.agribiz.Dto.Response.FarmerImportResponse;
+import com.example.agribiz.Dto.Response.UserDirectoryPage;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Service.User.FarmerImportService;
+import com.example.agribiz.Service.User.UserDirectoryService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// Everything under /api/v1/admin requires ROLE_ADMIN (see SecurityConfiguration)
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminController {
+
+    private final FarmerImportService farmerImportService;
+    private final UserDirectoryService userDirectoryService;
+
+    @GetMapping("/users")
+    public ResponseEntity<ApiResponse<UserDirectoryPage>> listUsers(
+            @RequestParam(required = false) Role role,
+            @RequestParam(required = false) Boolean verified,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + UserDirectoryService.DEFAULT_PAGE_SIZE) int limit
+    ) {
+        UserDirectoryFilter filter = new UserDirectoryFilter(role, verified, createdFrom, createdTo);
+
+        return ResponseEntity.ok(
+                ApiResponse.<UserDirectoryPage>builder()
+                        .success(true)
+                        .message("Users retrieved successfully")
+                        .data(userDirectoryService.listUsers(filter, cursor, limit))
+                        .build());
+    }
+
+    // Written straight to the response as rows arrive, like MediaController, so no async timeout applies
+    @GetMapping("/users/export")
+    public void exportUsers(
+            @RequestParam(required = false) Role role,
+            @RequestParam(required = false) Boolean verified,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdTo,
+            Authentication authentication,
+            HttpServletResponse response
+    ) throws IOException {
+        log.info("User export requested by: {}", authentication.getName());
+        UserDirectoryFilter filter = new UserDirectoryFilter(role, verified, createdFrom, createdTo);
+
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("users-" + LocalDate.now() + ".csv")
+                .build()
+                .toString());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        userDirectoryService.exportCsv(filter, writer);
+    }
+
+    // CSV with firstName, lastName, email and password columns; rows are validated like /auth/register
+    @PostMapping("/farmers/import")
+    public ResponseEntity<ApiResponse<FarmerImportResponse>> importFarmers(
+            @RequestParam("file") MultipartFile file,
+            Authentication authentication
+    ) {
+        log.info("Farmer import of {} requested by: {}", file.getOriginalFilename(), authentication.getName());
+
+        FarmerImportResponse job = farmerImportService.submit(file);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/admin/farmers/import/" + job.getJobId()))
+                .body(ApiResponse.<FarmerImportResponse>builder()
+                        .success(true)
+                        .message("Farmer import accepted")
+                        .data(job)
+                        .build());
+    }
+
+    @GetMapping("/farmers/import/{jobId}")
+    public ResponseEntity<ApiResponse<FarmerImportResponse>> getFarmerImport(@PathVariable String jobId) {
+        return ResponseEntity.ok(
+                ApiResponse.<FarmerImportResponse>builder()
+                        .success(true)
+                        .message("Farmer import status retrieved successfully")
+                        .data(farmerImportService.getImport(jobId))
+                        .build());
+    }
+}
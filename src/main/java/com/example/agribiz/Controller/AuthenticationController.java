@@ -3,15 +3,20 @@ package com.example.agribiz.Controller;
 import com.example.agribiz.Dto.Request.*;
 import com.example.agribiz.Dto.Response.ApiResponse;
 import com.example.agribiz.Dto.Response.AuthenticationResponse;
+import com.example.agribiz.Dto.Response.UploadJobResponse;
 import com.example.agribiz.Dto.Response.UserInfo;
 import com.example.agribiz.Dto.Response.VerificationResponse;
 import com.example.agribiz.Exception.InvalidOtpException;
+import com.example.agribiz.Exception.ServiceOverloadedException;
 import com.example.agribiz.Exception.UserAlreadyExistsException;
 import com.example.agribiz.Exception.UserNotFoundException;
 import com.example.agribiz.Service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -19,6 +24,8 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
+
 @RestController
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
@@ -26,6 +33,9 @@ import org.springframework.web.multipart.MultipartFile;
 @CrossOrigin(origins = "*")
 public class AuthenticationController {
 
+    // Clients may keep the profile but must revalidate it; replaces Spring Security's default no-store
+    private static final CacheControl PROFILE_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     private final UserService userService;
 
 
@@ -109,6 +119,13 @@ public ResponseEntity<VerificationResponse> register(
                         .message(e.getMessage())
                         .success(false)
                         .build());
+    } catch (ServiceOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(VerificationResponse.builder()
+                        .message(e.getMessage())
+                        .success(false)
+                        .build());
     } catch (Exception e) {
         log.error("Registration failed for email: {}", request.getEmail(), e);
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -243,13 +260,28 @@ public ResponseEntity<VerificationResponse> register(
     }
 
     @GetMapping("/profile")
-    public ResponseEntity<ApiResponse<UserInfo>> getProfile(Authentication authentication) {
+    public ResponseEntity<ApiResponse<UserInfo>> getProfile(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication authentication
+    ) {
+        // Polling clients usually hold the current profile already; answer them from the version alone
+        String etag = userService.getUserProfileETag(authentication.getName());
+        if (ifNoneMatch != null && ETag.parse(ifNoneMatch).stream()
+                .anyMatch(tag -> tag.isWildcard() || tag.compare(ETag.create(etag), false))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(PROFILE_CACHE_CONTROL)
+                    .build();
+        }
+
         log.info("Profile request received for user: {}", authentication.getName());
 
         UserInfo userInfo = userService.getUserProfile(authentication.getName());
 
-        return ResponseEntity.ok(
-                ApiResponse.<UserInfo>builder()
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(PROFILE_CACHE_CONTROL)
+                .body(ApiResponse.<UserInfo>builder()
                         .success(true)
                         .message("Profile retrieved successfully")
                         .data(userInfo)
@@ -274,19 +306,35 @@ public ResponseEntity<VerificationResponse> register(
     }
 
     @PostMapping("/profile/image")
-    public ResponseEntity<ApiResponse<String>> updateProfileImage(
+    public ResponseEntity<ApiResponse<UploadJobResponse>> updateProfileImage(
             @RequestParam("file") MultipartFile file,
             Authentication authentication
     ) {
         log.info("Profile image update request received for user: {}", authentication.getName());
 
-        String imageUrl = userService.updateProfileImage(authentication.getName(), file);
+        UploadJobResponse job = userService.updateProfileImage(authentication.getName(), file);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/auth/profile/image/jobs/" + job.getJobId()))
+                .body(ApiResponse.<UploadJobResponse>builder()
+                        .success(true)
+                        .message("Profile image upload accepted")
+                        .data(job)
+                        .build());
+    }
+
+    @GetMapping("/profile/image/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<UploadJobResponse>> getProfileImageUpload(
+            @PathVariable String jobId,
+            Authentication authentication
+    ) {
+        UploadJobResponse job = userService.getProfileImageUpload(authentication.getName(), jobId);
 
         return ResponseEntity.ok(
-                ApiResponse.<String>builder()
+                ApiResponse.<UploadJobResponse>builder()
                         .success(true)
-                        .message("Profile image updated successfully")
-                        .data(imageUrl)
+                        .message("Profile image upload status retrieved successfully")
+                        .data(job)
                         .build());
     }
 }
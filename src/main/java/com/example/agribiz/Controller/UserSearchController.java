@@ -0,0 +1,50 @@
+package com.example.agribiz.Controller;
+
+import com.example.agribiz.Dto.Response.ApiResponse;
+import com.example.agribiz.Dto.Response.UserSearchResult;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Service.User.UserSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/users")
+@RequiredArgsConstructor
+public class UserSearchController {
+
+    private final UserSearchService userSearchService;
+
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<List<UserSearchResult>>> search(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Role role,
+            @RequestParam(defaultValue = "" + UserSearchService.DEFAULT_LIMIT) int limit
+    ) {
+        return ResponseEntity.ok(
+                ApiResponse.<List<UserSearchResult>>builder()
+                        .success(true)
+                        .message("Search completed successfully")
+                        .data(userSearchService.search(query, role, limit))
+                        .build());
+    }
+
+    @GetMapping("/autocomplete")
+    public ResponseEntity<ApiResponse<List<UserSearchResult>>> autocomplete(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Role role,
+            @RequestParam(defaultValue = "" + UserSearchService.DEFAULT_LIMIT) int limit
+    ) {
+        return ResponseEntity.ok(
+                ApiResponse.<List<UserSearchResult>>builder()
+                        .success(true)
+                        .message("Suggestions retrieved successfully")
+                        .data(userSearchService.autocomplete(prefix, role, limit))
+                        .build());
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.agribiz.CustomAnnotations;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.*;
+
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = SelfRegistrableRoleValidator.class)
+@Documented
+public @interface SelfRegistrableRole {
+    String message() default "This role cannot be chosen at registration";
+    Class<?>[] groups() default {};
+    Class<? extends Payload>[] payload() default {};
+}
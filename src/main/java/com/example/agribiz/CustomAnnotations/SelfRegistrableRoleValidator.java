@@ -0,0 +1,14 @@
+package com.example.agribiz.CustomAnnotations;
+
+import com.example.agribiz.Model.Role;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class SelfRegistrableRoleValidator implements ConstraintValidator<SelfRegistrableRole, Role> {
+
+    @Override
+    public boolean isValid(Role role, ConstraintValidatorContext context) {
+        // Null is left to @NotNull
+        return role != Role.ADMIN;
+    }
+}
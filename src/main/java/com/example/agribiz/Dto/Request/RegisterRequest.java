@@ -1,5 +1,6 @@
 package com.example.agribiz.Dto.Request;
 import com.example.agribiz.CustomAnnotations.PasswordMatches;
+import com.example.agribiz.CustomAnnotations.SelfRegistrableRole;
 import com.example.agribiz.Model.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
@@ -37,5 +38,6 @@ public class RegisterRequest {
     private String confirmPassword;
 
     @NotNull(message = "Role is required")
+    @SelfRegistrableRole
     private Role role;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.example.agribiz.Dto.Request;
+
+import com.example.agribiz.Model.Role;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserDirectoryFilter {
+    private Role role;
+    private Boolean verified;
+    // Both ends inclusive
+    private LocalDate createdFrom;
+    private LocalDate createdTo;
+}
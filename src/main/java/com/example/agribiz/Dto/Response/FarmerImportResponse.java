@@ -0,0 +1,26 @@
+package com.example.agribiz.Dto.Response;
+
+import com.example.agribiz.Service.User.UploadStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FarmerImportResponse {
+    private String jobId;
+    private String fileName;
+    private UploadStatus status;
+    private long rowsProcessed;
+    private long imported;
+    private long alreadyRegistered;
+    private long failed;
+    // Capped at app.import.max-reported-errors; failed has the full count
+    private List<ImportRowError> errors;
+    private String error;
+}
@@ -0,0 +1,16 @@
+package com.example.agribiz.Dto.Response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportRowError {
+    private long line;
+    private String email;
+    private String message;
+}
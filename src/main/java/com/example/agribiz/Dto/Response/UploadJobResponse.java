@@ -0,0 +1,21 @@
+package com.example.agribiz.Dto.Response;
+
+import com.example.agribiz.Service.User.UploadStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadJobResponse {
+    private String jobId;
+    private UploadStatus status;
+    private long bytesUploaded;
+    private long totalBytes;
+    private String imageUrl;
+    private String thumbnailUrl;
+    private String error;
+}
@@ -0,0 +1,26 @@
+package com.example.agribiz.Dto.Response;
+
+import com.example.agribiz.Model.Role;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserDirectoryEntry {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private Role role;
+    private boolean verified;
+    private boolean enabled;
+    private boolean accountNonLocked;
+    private String phoneNumber;
+    private LocalDateTime createdAt;
+}
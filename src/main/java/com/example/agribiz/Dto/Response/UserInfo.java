@@ -16,6 +16,7 @@ public class UserInfo {
     private String email;
     private Role role;
     private String profileImageUrl;
+    private String profileThumbnailUrl;
     private String nationalId;
     private String address;
     private String phoneNumber;
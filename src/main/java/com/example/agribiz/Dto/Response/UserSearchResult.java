@@ -0,0 +1,22 @@
+package com.example.agribiz.Dto.Response;
+
+import com.example.agribiz.Model.Role;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSearchResult {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private Role role;
+    private String address;
+    private String profileThumbnailUrl;
+    // 0..1, higher is closer; null for autocomplete suggestions
+    private Double score;
+}
@@ -0,0 +1,12 @@
+package com.example.agribiz.Exception;
+
+// Thrown when a bounded worker pool is full and the request is shed instead of queued
+public class ServiceOverloadedException extends RuntimeException {
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+
+    public ServiceOverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.agribiz.Exception;
+
+public class UploadJobNotFoundException extends RuntimeException {
+    public UploadJobNotFoundException(String message) {
+        super(message);
+    }
+}
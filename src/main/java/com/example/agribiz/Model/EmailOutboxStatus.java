@@ -0,0 +1,8 @@
+package com.example.agribiz.Model;
+
+public enum EmailOutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    DEAD
+}
@@ -0,0 +1,49 @@
+package com.example.agribiz.Model;
+
+import com.example.agribiz.Service.User.RenditionSize;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// One stored image, keyed by the SHA-256 of the original upload and the rendition made from it
+@Entity
+@Table(name = "media_assets",
+        uniqueConstraints = @UniqueConstraint(name = "uk_media_assets_digest_variant", columnNames = {"digest", "variant"}),
+        indexes = @Index(name = "idx_media_assets_url", columnList = "url"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaAsset {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String digest;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RenditionSize variant;
+
+    @Column(nullable = false, length = 1000)
+    private String url;
+
+    @Column(name = "public_id", nullable = false)
+    private String publicId;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "ref_count", nullable = false)
+    @Builder.Default
+    private Integer refCount = 0;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,33 @@
+package com.example.agribiz.Model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "pending_otps", indexes = {
+        @Index(name = "idx_pending_otps_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PendingOtp {
+
+    @Id
+    private String email;
+
+    @Column(name = "otp_hash", nullable = false)
+    private byte[] otpHash;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+}
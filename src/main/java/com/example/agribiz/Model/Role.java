@@ -4,5 +4,6 @@ public enum Role {
     FARMER,
     BUYER,
     INVESTOR,
-//    ADMIN
+    // Granted directly in the database; RegisterRequest rejects it
+    ADMIN
 }
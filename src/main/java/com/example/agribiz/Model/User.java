@@ -5,7 +5,12 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -17,10 +22,12 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class User implements UserDetails {
 
     @Id
@@ -33,6 +40,7 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private String lastName;
 
+    @NaturalId
     @Column(nullable = false, unique = true)
     private String email;
 
@@ -54,6 +62,7 @@ public class User implements UserDetails {
 
     // Profile additional details
     private String profileImageUrl;
+    private String profileThumbnailUrl;
     private String nationalId;
     private String address;
     private String phoneNumber;
@@ -75,7 +84,14 @@ public class User implements UserDetails {
     @Builder.Default
     private Boolean credentialsNonExpired = true;
 
+    // Bumped whenever the password changes so previously issued tokens stop working
+    @Column(name = "credential_version", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long credentialVersion = 0L;
+
     @CreationTimestamp
+    @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @UpdateTimestamp
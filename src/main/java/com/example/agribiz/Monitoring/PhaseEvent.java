@@ -0,0 +1,20 @@
+package com.example.agribiz.Monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.example.agribiz.Phase")
+@Label("AgriBiz Phase")
+@Category({"AgriBiz", "Requests"})
+@Description("One timed step of a request or background job, such as a query, a BCrypt hash or an SMTP send")
+@StackTrace(false)
+@Threshold("1 ms")
+class PhaseEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    String phase;
+}
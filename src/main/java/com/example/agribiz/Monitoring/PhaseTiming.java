@@ -0,0 +1,5 @@
+package com.example.agribiz.Monitoring;
+
+// Offsets are from the start of the request; depth 0 phases don't overlap each other
+public record PhaseTiming(String name, int depth, double startMs, double durationMs) {
+}
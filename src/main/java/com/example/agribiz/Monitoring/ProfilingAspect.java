@@ -0,0 +1,43 @@
+package com.example.agribiz.Monitoring;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Proxy;
+
+// A phase per controller, UserService and repository call, named like "UserRepository.findByEmail"
+@Aspect
+@Component
+@ConditionalOnProperty(name = "app.profiling.enabled", havingValue = "true", matchIfMissing = true)
+public class ProfilingAspect {
+
+    // Spring Data repositories are JDK proxies; name them after our interface, not CrudRepository or $Proxy
+    private static final ClassValue<String> TYPE_NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            if (Proxy.isProxyClass(type)) {
+                for (Class<?> candidate : type.getInterfaces()) {
+                    if (candidate.getName().startsWith("com.example.agribiz.")) {
+                        return candidate.getSimpleName();
+                    }
+                }
+            }
+            return ClassUtils.getUserClass(type).getSimpleName();
+        }
+    };
+
+    @Around("within(@org.springframework.web.bind.annotation.RestController *)"
+            + " || within(com.example.agribiz.Service.UserService)"
+            + " || within(com.example.agribiz.Repository..*)"
+            + " || this(org.springframework.data.repository.Repository)")
+    public Object profile(ProceedingJoinPoint joinPoint) throws Throwable {
+        String name = TYPE_NAMES.get(joinPoint.getTarget().getClass()) + "." + joinPoint.getSignature().getName();
+        try (var phase = RequestProfiler.phase(name)) {
+            return joinPoint.proceed();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.agribiz.Monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("com.example.agribiz.Request")
+@Label("AgriBiz Request")
+@Category({"AgriBiz", "Requests"})
+@Description("An HTTP request, from the first filter to the response being written")
+@StackTrace(false)
+@Threshold("1 ms")
+class RequestEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+}
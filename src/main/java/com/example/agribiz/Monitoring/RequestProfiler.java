@@ -0,0 +1,108 @@
+package com.example.agribiz.Monitoring;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Phase timings for the request on the current thread. Every phase is a JFR PhaseEvent, which costs next to
+// nothing unless a recording enables it; inside a request opened by RequestProfilingFilter the phase is also
+// kept, so a slow request can be reported with its breakdown. Usage:
+//     try (var phase = RequestProfiler.phase("jwt.verify")) { ... }
+public final class RequestProfiler {
+
+    private static final ThreadLocal<Profile> CURRENT = new ThreadLocal<>();
+
+    private RequestProfiler() {
+    }
+
+    public static Phase phase(String name) {
+        return new Phase(name, CURRENT.get());
+    }
+
+    static Profile begin(int maxPhases) {
+        Profile profile = new Profile(System.nanoTime(), maxPhases);
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final Profile profile;
+        private final PhaseEvent event;
+        private final int depth;
+        private final long start;
+
+        private Phase(String name, Profile profile) {
+            this.name = name;
+            this.profile = profile;
+            this.depth = profile == null ? 0 : profile.depth++;
+            this.event = new PhaseEvent();
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long end = System.nanoTime();
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.commit();
+            }
+            if (profile != null) {
+                profile.depth--;
+                profile.record(name, depth, start, end);
+            }
+        }
+    }
+
+    // Only ever touched by the request's own thread
+    static final class Profile {
+        private final long startNanos;
+        private final int maxPhases;
+        private final List<PhaseTiming> phases = new ArrayList<>();
+        private int depth;
+        private int dropped;
+
+        private Profile(long startNanos, int maxPhases) {
+            this.startNanos = startNanos;
+            this.maxPhases = maxPhases;
+        }
+
+        long elapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+
+        // A bulk import can run thousands of queries; past the cap only the count is kept
+        private void record(String name, int depth, long start, long end) {
+            if (phases.size() < maxPhases) {
+                phases.add(new PhaseTiming(name, depth, millis(start - startNanos), millis(end - start)));
+            } else {
+                dropped++;
+            }
+        }
+
+        SlowRequest toSlowRequest(String method, String path, int status, long elapsedNanos) {
+            List<PhaseTiming> ordered = new ArrayList<>(phases);
+            // Phases are recorded as they close, so a parent comes after its children
+            ordered.sort(Comparator.comparingDouble(PhaseTiming::startMs).thenComparingInt(PhaseTiming::depth));
+            double accounted = ordered.stream()
+                    .filter(phase -> phase.depth() == 0)
+                    .mapToDouble(PhaseTiming::durationMs)
+                    .sum();
+            double durationMs = millis(elapsedNanos);
+            Instant startedAt = Instant.now().minusNanos(elapsedNanos);
+            return new SlowRequest(startedAt, method, path, status, durationMs,
+                    Math.max(0, durationMs - accounted), ordered, dropped);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
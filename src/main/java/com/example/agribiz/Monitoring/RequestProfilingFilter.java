@@ -0,0 +1,82 @@
+package com.example.agribiz.Monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Runs ahead of the security chain so rate limiting, JWT checks and response writing are all inside the
+// measured time. Every request collects its phases; only those slower than the threshold are kept
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class RequestProfilingFilter extends OncePerRequestFilter {
+
+    private final SlowRequestLog slowRequestLog;
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final int maxPhases;
+
+    public RequestProfilingFilter(
+            SlowRequestLog slowRequestLog,
+            @Value("${app.profiling.enabled:true}") boolean enabled,
+            @Value("${app.profiling.slow-request-threshold:1s}") Duration threshold,
+            @Value("${app.profiling.max-phases:100}") int maxPhases
+    ) {
+        this.slowRequestLog = slowRequestLog;
+        this.enabled = enabled;
+        this.thresholdNanos = threshold.toNanos();
+        this.maxPhases = maxPhases;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        RequestProfiler.Profile profile = RequestProfiler.begin(maxPhases);
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            RequestProfiler.end();
+            long elapsed = profile.elapsedNanos();
+            event.end();
+            // An exception escaping here becomes a 500 further up, whatever the response says so far
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            if (event.shouldCommit()) {
+                event.method = request.getMethod();
+                event.path = request.getRequestURI();
+                event.status = status;
+                event.commit();
+            }
+            if (elapsed >= thresholdNanos) {
+                SlowRequest slowRequest = profile.toSlowRequest(
+                        request.getMethod(), request.getRequestURI(), status, elapsed);
+                slowRequestLog.add(slowRequest);
+                log.debug("Slow request {} {} took {} ms", slowRequest.method(), slowRequest.path(),
+                        Math.round(slowRequest.durationMs()));
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.agribiz.Monitoring;
+
+import java.time.Instant;
+import java.util.List;
+
+// unaccountedMs is time outside any top-level phase: filters, serialization, the servlet container
+public record SlowRequest(
+        Instant startedAt,
+        String method,
+        String path,
+        int status,
+        double durationMs,
+        double unaccountedMs,
+        List<PhaseTiming> phases,
+        int droppedPhases
+) {
+}
@@ -0,0 +1,46 @@
+package com.example.agribiz.Monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// The most recent slow requests; once full, each new one overwrites the oldest
+@Component
+public class SlowRequestLog {
+
+    private final AtomicReferenceArray<SlowRequest> entries;
+    private final AtomicLong written = new AtomicLong();
+
+    public SlowRequestLog(@Value("${app.profiling.slow-request-capacity:100}") int capacity) {
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(SlowRequest request) {
+        long slot = written.getAndIncrement();
+        entries.set((int) (slot % entries.length()), request);
+    }
+
+    // Newest first
+    public List<SlowRequest> snapshot() {
+        long end = written.get();
+        long start = Math.max(0, end - entries.length());
+        List<SlowRequest> requests = new ArrayList<>((int) (end - start));
+        for (long slot = end - 1; slot >= start; slot--) {
+            SlowRequest request = entries.get((int) (slot % entries.length()));
+            if (request != null) {
+                requests.add(request);
+            }
+        }
+        return requests;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+}
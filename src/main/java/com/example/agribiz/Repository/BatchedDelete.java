@@ -0,0 +1,24 @@
+package com.example.agribiz.Repository;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.IntUnaryOperator;
+
+// Background purges delete one bounded batch per transaction until a batch comes back short, so no single
+// statement holds row locks on a table the request path writes to for long
+public final class BatchedDelete {
+
+    private BatchedDelete() {
+    }
+
+    // deleteBatch receives the batch size and returns how many rows it deleted
+    public static long deleteAll(TransactionTemplate transactionTemplate, int batchSize, IntUnaryOperator deleteBatch) {
+        long deleted = 0;
+        Integer batch;
+        do {
+            batch = transactionTemplate.execute(status -> deleteBatch.applyAsInt(batchSize));
+            deleted += batch == null ? 0 : batch;
+        } while (batch != null && batch == batchSize);
+        return deleted;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.agribiz.Repository;
+
+import com.example.agribiz.Model.EmailOutboxMessage;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // SKIP LOCKED lets several nodes drain the outbox without picking up the same rows. A SENDING row
+    // whose lease (next_attempt_at) has run out belongs to a dispatcher that died mid-send.
+    @Query(value = "SELECT * FROM email_outbox WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EmailOutboxMessage> lockDueBatch(LocalDateTime now, int limit);
+
+    // The query space keeps Hibernate from evicting every second-level cache region after this runs
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE id IN (SELECT id FROM email_outbox " +
+            "WHERE status IN ('SENT', 'DEAD') AND created_at <= :cutoff LIMIT :batchSize)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "email_outbox"))
+    int deleteFinishedBatch(LocalDateTime cutoff, int batchSize);
+}
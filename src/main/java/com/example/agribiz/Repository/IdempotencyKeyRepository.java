@@ -0,0 +1,79 @@
+package com.example.agribiz.Repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+// Each statement commits on its own: a claim has to be visible to concurrent retries before the request runs
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // responseStatus is null while the first request is still running
+    public record StoredRequest(String requestHash, Integer responseStatus, String contentType, byte[] responseBody) {
+    }
+
+    // True when this request now owns the key: it was unused, expired, or held by a request that has been
+    // running since before staleBefore (its node most likely died)
+    public boolean claim(String path, String key, String requestHash, Instant now, Instant expiresAt, Instant staleBefore) {
+        String sql = "INSERT INTO idempotency_keys (request_path, idempotency_key, request_hash, created_at, expires_at) "
+                + "VALUES (:path, :key, :hash, :now, :expiresAt) "
+                + "ON CONFLICT (request_path, idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, "
+                + "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at, "
+                + "response_status = NULL, content_type = NULL, response_body = NULL "
+                + "WHERE idempotency_keys.expires_at <= :now "
+                + "OR (idempotency_keys.response_status IS NULL AND idempotency_keys.created_at <= :staleBefore)";
+        MapSqlParameterSource params = keyParams(path, key)
+                .addValue("hash", requestHash)
+                .addValue("now", Timestamp.from(now))
+                .addValue("expiresAt", Timestamp.from(expiresAt))
+                .addValue("staleBefore", Timestamp.from(staleBefore));
+        return jdbcTemplate.update(sql, params) == 1;
+    }
+
+    public Optional<StoredRequest> find(String path, String key) {
+        String sql = "SELECT request_hash, response_status, content_type, response_body FROM idempotency_keys "
+                + "WHERE request_path = :path AND idempotency_key = :key";
+        return jdbcTemplate.query(sql, keyParams(path, key), (rs, rowNum) -> new StoredRequest(
+                rs.getString("request_hash"),
+                rs.getObject("response_status", Integer.class),
+                rs.getString("content_type"),
+                rs.getBytes("response_body"))).stream().findFirst();
+    }
+
+    public void complete(String path, String key, int status, String contentType, byte[] body) {
+        String sql = "UPDATE idempotency_keys SET response_status = :status, content_type = :contentType, "
+                + "response_body = :body WHERE request_path = :path AND idempotency_key = :key";
+        jdbcTemplate.update(sql, keyParams(path, key)
+                .addValue("status", status)
+                .addValue("contentType", contentType)
+                .addValue("body", body));
+    }
+
+    // Frees the key so a retry runs the request again
+    public void release(String path, String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE request_path = :path AND idempotency_key = :key",
+                keyParams(path, key));
+    }
+
+    public int deleteExpiredBatch(Instant now, int batchSize) {
+        String sql = "DELETE FROM idempotency_keys WHERE (request_path, idempotency_key) IN "
+                + "(SELECT request_path, idempotency_key FROM idempotency_keys WHERE expires_at <= :now LIMIT :batchSize)";
+        return jdbcTemplate.update(sql, new MapSqlParameterSource()
+                .addValue("now", Timestamp.from(now))
+                .addValue("batchSize", batchSize));
+    }
+
+    private static MapSqlParameterSource keyParams(String path, String key) {
+        return new MapSqlParameterSource()
+                .addValue("path", path)
+                .addValue("key", key);
+    }
+}
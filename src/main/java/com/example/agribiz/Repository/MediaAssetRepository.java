@@ -0,0 +1,42 @@
+package com.example.agribiz.Repository;
+
+import com.example.agribiz.Model.MediaAsset;
+import com.example.agribiz.Service.User.RenditionSize;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MediaAssetRepository extends JpaRepository<MediaAsset, Long> {
+
+    List<MediaAsset> findByDigest(String digest);
+
+    Optional<MediaAsset> findByDigestAndVariant(String digest, RenditionSize variant);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM MediaAsset a WHERE a.url = :url")
+    Optional<MediaAsset> findByUrlForUpdate(String url);
+
+    // Inserted already referenced by the caller; returns 0 when another upload of the same content registered first
+    @Modifying
+    @Query(value = "INSERT INTO media_assets (digest, variant, url, public_id, size_bytes, ref_count, created_at) " +
+            "VALUES (:digest, :variant, :url, :publicId, :sizeBytes, 1, :createdAt) " +
+            "ON CONFLICT (digest, variant) DO NOTHING", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "media_assets"))
+    int insertIfAbsent(String digest, String variant, String url, String publicId, long sizeBytes, Instant createdAt);
+
+    // Returns 0 when the asset was released and deleted in the meantime
+    @Modifying
+    @Query("UPDATE MediaAsset a SET a.refCount = a.refCount + 1 WHERE a.digest = :digest AND a.variant = :variant")
+    int incrementRefCount(String digest, RenditionSize variant);
+}
@@ -0,0 +1,36 @@
+package com.example.agribiz.Repository;
+
+import com.example.agribiz.Model.PendingOtp;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface PendingOtpRepository extends JpaRepository<PendingOtp, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM PendingOtp o WHERE o.email = :email")
+    Optional<PendingOtp> findForUpdate(String email);
+
+    @Modifying
+    @Query(value = "INSERT INTO pending_otps (email, otp_hash, expires_at, attempts) VALUES (:email, :otpHash, :expiresAt, 0) " +
+            "ON CONFLICT (email) DO UPDATE SET otp_hash = EXCLUDED.otp_hash, expires_at = EXCLUDED.expires_at, attempts = 0",
+            nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pending_otps"))
+    void upsert(String email, byte[] otpHash, Instant expiresAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM pending_otps WHERE email IN " +
+            "(SELECT email FROM pending_otps WHERE expires_at <= :now LIMIT :batchSize)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pending_otps"))
+    int deleteExpiredBatch(Instant now, int batchSize);
+}
@@ -0,0 +1,104 @@
+package com.example.agribiz.Repository;
+
+import com.example.agribiz.Dto.Request.UserDirectoryFilter;
+import com.example.agribiz.Dto.Response.UserDirectoryEntry;
+import com.example.agribiz.Model.Role;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Admin directory reads. Plain SQL so only directory columns are ever selected; password, token and
+// credential columns never leave the database, and no User entity is built or cached.
+@Repository
+public class UserDirectoryRepository {
+
+    private static final String SELECT_COLUMNS = "SELECT id, first_name, last_name, email, role, is_verified, " +
+            "enabled, account_non_locked, phone_number, created_at FROM users";
+
+    // Newest first; (created_at, id) is unique, so a page boundary never splits or repeats a row
+    private static final String ORDER_BY = " ORDER BY created_at DESC, id DESC";
+
+    private static final RowMapper<UserDirectoryEntry> ROW_MAPPER = (rs, rowNum) -> UserDirectoryEntry.builder()
+            .id(rs.getLong("id"))
+            .firstName(rs.getString("first_name"))
+            .lastName(rs.getString("last_name"))
+            .email(rs.getString("email"))
+            .role(Role.valueOf(rs.getString("role")))
+            .verified(rs.getBoolean("is_verified"))
+            .enabled(rs.getBoolean("enabled"))
+            .accountNonLocked(rs.getBoolean("account_non_locked"))
+            .phoneNumber(rs.getString("phone_number"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate exportJdbcTemplate;
+
+    public UserDirectoryRepository(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            DataSource dataSource,
+            @Value("${app.admin.export.fetch-size:1000}") int exportFetchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Postgres only honours the fetch size inside a transaction; otherwise it sends the whole result at once
+        JdbcTemplate export = new JdbcTemplate(dataSource);
+        export.setFetchSize(exportFetchSize);
+        this.exportJdbcTemplate = new NamedParameterJdbcTemplate(export);
+    }
+
+    public List<UserDirectoryEntry> findPage(UserDirectoryFilter filter, Cursor after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        String sql = SELECT_COLUMNS + where(filter, after, params) + ORDER_BY + " LIMIT :limit";
+        return jdbcTemplate.query(sql, params, ROW_MAPPER);
+    }
+
+    // Rows are handed over as they arrive; call inside a transaction so the driver fetches them in chunks
+    public void forEach(UserDirectoryFilter filter, Consumer<UserDirectoryEntry> action) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = SELECT_COLUMNS + where(filter, null, params) + ORDER_BY;
+        exportJdbcTemplate.query(sql, params, rs -> {
+            action.accept(ROW_MAPPER.mapRow(rs, rs.getRow()));
+        });
+    }
+
+    private static String where(UserDirectoryFilter filter, Cursor after, MapSqlParameterSource params) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.getRole() != null) {
+            conditions.add("role = :role");
+            params.addValue("role", filter.getRole().name());
+        }
+        if (filter.getVerified() != null) {
+            conditions.add("is_verified = :verified");
+            params.addValue("verified", filter.getVerified());
+        }
+        if (filter.getCreatedFrom() != null) {
+            conditions.add("created_at >= :createdFrom");
+            params.addValue("createdFrom", Timestamp.valueOf(filter.getCreatedFrom().atStartOfDay()));
+        }
+        if (filter.getCreatedTo() != null) {
+            conditions.add("created_at < :createdBefore");
+            params.addValue("createdBefore", Timestamp.valueOf(filter.getCreatedTo().plusDays(1).atStartOfDay()));
+        }
+        if (after != null) {
+            // Row comparison matches idx_users_created_at_id, so the scan starts right after the cursor
+            conditions.add("(created_at, id) < (:afterCreatedAt, :afterId)");
+            params.addValue("afterCreatedAt", Timestamp.valueOf(after.createdAt()));
+            params.addValue("afterId", after.id());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    // Position of the last row of a page
+    public record Cursor(LocalDateTime createdAt, long id) {
+    }
+}
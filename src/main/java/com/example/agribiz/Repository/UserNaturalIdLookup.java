@@ -0,0 +1,11 @@
+package com.example.agribiz.Repository;
+
+import com.example.agribiz.Model.User;
+
+import java.util.Optional;
+
+// Replaces the derived findByEmail query with a natural-id lookup that the second-level cache can answer
+public interface UserNaturalIdLookup {
+
+    Optional<User> findByEmail(String email);
+}
@@ -4,19 +4,41 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import com.example.agribiz.Model.User;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-
-    Optional<User> findByEmail(String email);
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdLookup {
 
     boolean existsByEmail(String email);
 
+    // Sign-up in one round trip: empty when the email is already taken, including by a concurrent sign-up.
+    // Read-write even outside a service transaction; interface query methods default to read-only.
+    @Transactional
+    @Query(value = "INSERT INTO users (first_name, last_name, email, password, is_verified, role, enabled, " +
+            "account_non_expired, account_non_locked, credentials_non_expired, credential_version, " +
+            "created_at, updated_at) " +
+            "VALUES (:firstName, :lastName, :email, :password, false, :role, true, true, true, true, 0, " +
+            "localtimestamp, localtimestamp) " +
+            "ON CONFLICT (email) DO NOTHING RETURNING id", nativeQuery = true)
+    Optional<Long> insertUnverified(String firstName, String lastName, String email, String password, String role);
+
+    // Batched existence check for bulk imports; one index probe per email in a single round trip
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    // Reset tokens are stored as the hex SHA-256 of the emailed token
     Optional<User> findByResetToken(String resetToken);
 
     @Query("SELECT u FROM User u WHERE u.resetToken = :token AND u.resetTokenExpiry > :now")
     Optional<User> findByValidResetToken(String token, LocalDateTime now);
-}
\ No newline at end of file
+
+    // The revocation check behind every claims-only JWT request; a replica can answer it
+    @Transactional(readOnly = true)
+    @Query("SELECT u.credentialVersion FROM User u WHERE u.id = :id AND u.enabled = true AND u.accountNonLocked = true")
+    Optional<Long> findActiveCredentialVersion(Long id);
+}
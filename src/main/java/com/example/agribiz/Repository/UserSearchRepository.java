@@ -0,0 +1,176 @@
+package com.example.agribiz.Repository;
+
+import com.example.agribiz.Dto.Response.UserSearchResult;
+import com.example.agribiz.Model.Role;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+// Name, village and phone search over the dictionary from V7 and the indexes from V8. The indexed
+// expressions here must stay identical to the ones in the migrations.
+@Repository
+@RequiredArgsConstructor
+public class UserSearchRepository {
+
+    private static final String NAME = "lower(first_name || ' ' || last_name)";
+    private static final String ADDRESS = "lower(address)";
+    private static final String VECTOR = "user_search_vector(first_name, last_name, address)";
+    private static final String PHONE_DIGITS = "regexp_replace(phone_number, '[^0-9]', '', 'g')";
+
+    private static final String COLUMNS = "id, first_name, last_name, role, address, profile_thumbnail_url";
+
+    // Only people others can actually reach
+    private static final String SEARCHABLE = "is_verified AND enabled AND role <> 'ADMIN'";
+
+    // Upper bound on the rows scored for one search. Only a term shared by a large part of the population
+    // (a common village prefix, say) matches more, and then the results are the best of an arbitrary subset.
+    private static final int MAX_CANDIDATES = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // A word of the query and one dictionary word close to it; word is null when nothing is close enough
+    public record WordMatch(String term, String word) {
+    }
+
+    // Splits the text into words exactly as the search vector does, then finds the closest dictionary
+    // words for each. Only valid inside a transaction that has set the threshold (see setSimilarityThreshold).
+    public List<WordMatch> matchWords(String text, int alternatives) {
+        String sql = "SELECT t.term, w.word FROM unnest(tsvector_to_array(to_tsvector('simple', :text))) AS t(term)"
+                + " LEFT JOIN LATERAL (SELECT word, similarity(word, t.term) AS sim FROM user_search_words"
+                + " WHERE word % t.term ORDER BY sim DESC, word LIMIT :alternatives) w ON true";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("text", text)
+                .addValue("alternatives", alternatives);
+        return jdbcTemplate.query(sql, params, (rs, rowNum) -> new WordMatch(rs.getString("term"), rs.getString("word")));
+    }
+
+    // People whose names or address contain one alternative of every word group, or whose phone number
+    // contains the digits, ranked by word similarity of the whole term against name and village
+    public List<UserSearchResult> search(String term, List<List<String>> wordGroups, String digits, Role role, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("term", term)
+                .addValue("candidates", MAX_CANDIDATES)
+                .addValue("limit", limit);
+
+        List<String> matches = new ArrayList<>();
+        String phoneScore = "";
+        if (!wordGroups.isEmpty()) {
+            matches.add(VECTOR + " @@ CAST(:query AS tsquery)");
+            params.addValue("query", toTsQuery(wordGroups));
+        }
+        if (digits != null) {
+            // A phone fragment is an exact substring match, so it ranks as a perfect hit
+            matches.add(PHONE_DIGITS + " LIKE :digits");
+            phoneScore = ", CASE WHEN " + PHONE_DIGITS + " LIKE :digits THEN 1.0 END";
+            params.addValue("digits", "%" + digits + "%");
+        }
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        String roleFilter = "";
+        if (role != null) {
+            roleFilter = " AND role = :role";
+            params.addValue("role", role.name());
+        }
+
+        String sql = "SELECT " + COLUMNS + ", greatest(word_similarity(:term, " + NAME + "), "
+                + "word_similarity(:term, " + ADDRESS + ")" + phoneScore + ") AS score"
+                + " FROM (SELECT " + COLUMNS + ", phone_number FROM users WHERE " + SEARCHABLE + roleFilter
+                + " AND (" + String.join(" OR ", matches) + ") LIMIT :candidates) candidates"
+                + " ORDER BY score DESC, id LIMIT :limit";
+        return jdbcTemplate.query(sql, params, rowMapper(true));
+    }
+
+    public void setSimilarityThreshold(double threshold) {
+        // is_local = true: reverts when the surrounding transaction ends, so pooled connections stay clean
+        jdbcTemplate.queryForObject("SELECT set_config('pg_trgm.similarity_threshold', :threshold, true)",
+                new MapSqlParameterSource("threshold", Double.toString(threshold)), String.class);
+    }
+
+    // First-name and last-name matches are each read in index order and stop after `limit` rows;
+    // a user can appear in both halves, so callers de-duplicate
+    public List<UserSearchResult> autocomplete(String prefix, Role role, int limit) {
+        String until = successor(prefix);
+        if (until == null) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("pattern", escapeLike(prefix) + "%")
+                .addValue("from", prefix)
+                .addValue("until", until)
+                .addValue("limit", limit);
+        String roleFilter = "";
+        if (role != null) {
+            roleFilter = " AND role = :role";
+            params.addValue("role", role.name());
+        }
+
+        String sql = "SELECT * FROM ("
+                + prefixBranch("first_name", roleFilter) + " UNION ALL " + prefixBranch("last_name", roleFilter)
+                + ") suggestions ORDER BY sort_key, id LIMIT :limit";
+        return jdbcTemplate.query(sql, params, rowMapper(false));
+    }
+
+    private static String prefixBranch(String column, String roleFilter) {
+        String key = "lower(" + column + ") COLLATE \"C\"";
+        // The planner only derives index bounds from a LIKE with a literal pattern; the explicit range keeps
+        // the seek when the statement runs as a generic prepared plan
+        return "(SELECT " + COLUMNS + ", " + key + " AS sort_key FROM users"
+                + " WHERE " + key + " >= :from AND " + key + " < :until AND " + key + " LIKE :pattern"
+                + " AND " + SEARCHABLE + roleFilter
+                + " ORDER BY " + key + ", id LIMIT :limit)";
+    }
+
+    // The smallest string above every string starting with prefix, under the byte order of COLLATE "C".
+    // Null only for a prefix made entirely of U+10FFFF, a noncharacter no name starts with.
+    private static String successor(String prefix) {
+        if (prefix.isEmpty()) {
+            return null;
+        }
+        int last = prefix.codePointBefore(prefix.length());
+        String head = prefix.substring(0, prefix.length() - Character.charCount(last));
+        if (last == Character.MAX_CODE_POINT) {
+            return successor(head);
+        }
+        int next = last + 1;
+        if (next >= Character.MIN_SURROGATE && next <= Character.MAX_SURROGATE) {
+            next = Character.MAX_SURROGATE + 1;
+        }
+        return head + Character.toString(next);
+    }
+
+    // ('a' | 'b') & ('c'): quoted lexemes are taken as they are, with no further parsing
+    private static String toTsQuery(List<List<String>> wordGroups) {
+        StringJoiner query = new StringJoiner(" & ");
+        for (List<String> group : wordGroups) {
+            StringJoiner alternatives = new StringJoiner(" | ", "(", ")");
+            for (String word : group) {
+                alternatives.add("'" + word.replace("\\", "\\\\").replace("'", "''") + "'");
+            }
+            query.add(alternatives.toString());
+        }
+        return query.toString();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static RowMapper<UserSearchResult> rowMapper(boolean scored) {
+        return (rs, rowNum) -> UserSearchResult.builder()
+                .id(rs.getLong("id"))
+                .firstName(rs.getString("first_name"))
+                .lastName(rs.getString("last_name"))
+                .role(Role.valueOf(rs.getString("role")))
+                .address(rs.getString("address"))
+                .profileThumbnailUrl(rs.getString("profile_thumbnail_url"))
+                .score(scored ? rs.getDouble("score") : null)
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.agribiz.Security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Decides the BCrypt cost for new hashes: the configured one, or, when calibration is switched on, the
+// highest cost that keeps one hash within the latency target on this machine
+@Component
+@Slf4j
+public class BCryptStrengthCalibrator {
+
+    private static final int SAMPLES = 3;
+
+    private final int strength;
+    private final boolean calibrate;
+    private final Duration targetHashTime;
+    private final int minStrength;
+    private final int maxStrength;
+
+    public BCryptStrengthCalibrator(
+            @Value("${app.security.password.strength:10}") int strength,
+            @Value("${app.security.password.calibrate:false}") boolean calibrate,
+            @Value("${app.security.password.target-hash-time:250ms}") Duration targetHashTime,
+            @Value("${app.security.password.min-strength:10}") int minStrength,
+            @Value("${app.security.password.max-strength:16}") int maxStrength
+    ) {
+        this.strength = strength;
+        this.calibrate = calibrate;
+        this.targetHashTime = targetHashTime;
+        this.minStrength = minStrength;
+        this.maxStrength = maxStrength;
+    }
+
+    public int strength() {
+        // Pinned by default: every node must agree, or logins rehash each user to whichever node they hit.
+        // Calibrate only where all nodes run on the same hardware.
+        if (!calibrate) {
+            log.info("Using configured BCrypt strength {}", strength);
+            return strength;
+        }
+
+        long baseNanos = measure(minStrength);
+        int calibrated = minStrength;
+        // Each extra cost level doubles the work, so extrapolate instead of timing the slow levels
+        while (calibrated < maxStrength && baseNanos << (calibrated + 1 - minStrength) <= targetHashTime.toNanos()) {
+            calibrated++;
+        }
+
+        log.info("Calibrated BCrypt strength {} ({} ms at strength {}, target {} ms)",
+                calibrated, baseNanos / 1_000_000, minStrength, targetHashTime.toMillis());
+        return calibrated;
+    }
+
+    // Median time of one hash at the given cost
+    long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        encoder.encode("calibration-warmup");
+
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration-sample-" + i);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
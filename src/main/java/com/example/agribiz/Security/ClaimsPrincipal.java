@@ -0,0 +1,13 @@
+package com.example.agribiz.Security;
+
+import com.example.agribiz.Model.Role;
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+// Principal built from JWT claims alone when claims-only authentication is enabled
+public record ClaimsPrincipal(Long id, String email, Role role) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.agribiz.Security;
+
+import com.example.agribiz.Dto.Response.ErrorResponse;
+import com.example.agribiz.Repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Replays the stored response when a client retries a POST to the auth endpoints with the same
+// Idempotency-Key, instead of hashing a password or sending an email a second time
+@Component
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final String PATH_PREFIX = "/api/v1/auth/";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String CIPHER_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final Pattern VALID_KEY = Pattern.compile("[\\x21-\\x7E]{1,255}");
+    // A repeated login or password change just runs again, and neither is worth keeping a JWT or a password
+    // hash outcome around for
+    private static final Set<String> UNSTORED_PATHS = Set.of(PATH_PREFIX + "login", PATH_PREFIX + "change-password");
+    // Its OTP is single use, so a retry after a lost response can only be answered from the store. The JWT in
+    // that response is kept encrypted and only for tokenTtl
+    private static final Set<String> ENCRYPTED_PATHS = Set.of(PATH_PREFIX + "verify-email");
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration tokenTtl;
+    private final Duration lockTimeout;
+    private final SecretKeySpec fingerprintKey;
+    private final SecretKeySpec responseKey;
+    private final SecureRandom random = new SecureRandom();
+
+    public IdempotencyFilter(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            ObjectMapper objectMapper,
+            @Value("${app.idempotency.enabled:true}") boolean enabled,
+            @Value("${app.idempotency.ttl:24h}") Duration ttl,
+            @Value("${app.idempotency.token-ttl:10m}") Duration tokenTtl,
+            @Value("${app.idempotency.lock-timeout:60s}") Duration lockTimeout,
+            @Value("${app.idempotency.secret:${jwt.secret}}") String secret
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.tokenTtl = tokenTtl;
+        this.lockTimeout = lockTimeout;
+        this.fingerprintKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        // Derived from the same secret, but not the fingerprint key itself
+        this.responseKey = new SecretKeySpec(hmac("idempotency-response-key".getBytes(StandardCharsets.UTF_8)), "AES");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled
+                || !"POST".equals(request.getMethod())
+                || !request.getServletPath().startsWith(PATH_PREFIX)
+                || UNSTORED_PATHS.contains(request.getServletPath())
+                || request.getHeader(KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        String key = request.getHeader(KEY_HEADER);
+        if (!VALID_KEY.matcher(key).matches()) {
+            reject(request, response, HttpStatus.BAD_REQUEST,
+                    KEY_HEADER + " must be 1 to 255 printable ASCII characters.");
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            reject(request, response, HttpStatus.PAYLOAD_TOO_LARGE,
+                    KEY_HEADER + " is only supported for request bodies up to " + MAX_BODY_BYTES + " bytes.");
+            return;
+        }
+
+        String path = request.getServletPath();
+        boolean encrypted = ENCRYPTED_PATHS.contains(path);
+        String requestHash = fingerprint(request, body);
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(encrypted ? tokenTtl : ttl);
+        if (!idempotencyKeyRepository.claim(path, key, requestHash, now, expiresAt, now.minus(lockTimeout))) {
+            answerRetry(request, response, idempotencyKeyRepository.find(path, key), requestHash, encrypted);
+            return;
+        }
+
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            filterChain.doFilter(new CachedBodyHttpServletRequest(request, body), captured);
+            if (isFinal(captured.getStatus())) {
+                byte[] responseBody = captured.getContentAsByteArray();
+                idempotencyKeyRepository.complete(path, key, captured.getStatus(), captured.getContentType(),
+                        encrypted ? encrypt(path, key, responseBody) : responseBody);
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                idempotencyKeyRepository.release(path, key);
+            }
+            captured.copyBodyToResponse();
+        }
+    }
+
+    private void answerRetry(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Optional<IdempotencyKeyRepository.StoredRequest> found,
+            String requestHash,
+            boolean encrypted
+    ) throws IOException {
+        if (found.isPresent() && !found.get().requestHash().equals(requestHash)) {
+            reject(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    KEY_HEADER + " was already used for a different request.");
+            return;
+        }
+        // Also covers a key released between our claim and the lookup: the retry will run the request
+        if (found.isEmpty() || found.get().responseStatus() == null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            reject(request, response, HttpStatus.CONFLICT,
+                    "A request with this " + KEY_HEADER + " is still being processed.");
+            return;
+        }
+
+        IdempotencyKeyRepository.StoredRequest stored = found.get();
+        log.info("Replaying stored response for {} {}", request.getMethod(), request.getServletPath());
+        response.setStatus(stored.responseStatus());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        byte[] body = Objects.requireNonNullElse(stored.responseBody(), new byte[0]);
+        if (encrypted) {
+            body = decrypt(request.getServletPath(), request.getHeader(KEY_HEADER), body);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    // Server errors and refusals that don't depend on the request itself (authentication, throttling)
+    // are not the request's outcome; the client must be able to retry them with the same key
+    private static boolean isFinal(int status) {
+        return status < 500
+                && status != HttpStatus.UNAUTHORIZED.value()
+                && status != HttpStatus.FORBIDDEN.value()
+                && status != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    // The same key with another body, or from another caller, must not get this response. Keyed with a server
+    // secret, so the stored hash can't be brute-forced back into the emails and passwords it was computed over
+    private String fingerprint(HttpServletRequest request, byte[] body) {
+        return HexFormat.of().formatHex(hmac(
+                request.getMethod().getBytes(StandardCharsets.UTF_8),
+                request.getServletPath().getBytes(StandardCharsets.UTF_8),
+                Objects.toString(request.getQueryString(), "").getBytes(StandardCharsets.UTF_8),
+                Objects.toString(request.getHeader(HttpHeaders.AUTHORIZATION), "").getBytes(StandardCharsets.UTF_8),
+                body));
+    }
+
+    // Parts are separated by a zero byte, so moving bytes from one part into the next changes the MAC
+    private byte[] hmac(byte[]... parts) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(fingerprintKey);
+            for (int i = 0; i < parts.length - 1; i++) {
+                mac.update(parts[i]);
+                mac.update((byte) 0);
+            }
+            return mac.doFinal(parts[parts.length - 1]);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(HMAC_ALGORITHM + " not available", e);
+        }
+    }
+
+    // IV followed by AES-GCM ciphertext. The path and key are authenticated too, so a stored body can't be
+    // replayed under another row
+    private byte[] encrypt(String path, String key, byte[] plaintext) {
+        try {
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.ENCRYPT_MODE, responseKey, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD((path + '\0' + key).getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = cipher.doFinal(plaintext);
+            byte[] stored = Arrays.copyOf(iv, IV_BYTES + ciphertext.length);
+            System.arraycopy(ciphertext, 0, stored, IV_BYTES, ciphertext.length);
+            return stored;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt the stored response", e);
+        }
+    }
+
+    private byte[] decrypt(String path, String key, byte[] stored) {
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
+            cipher.init(Cipher.DECRYPT_MODE, responseKey, new GCMParameterSpec(TAG_BITS, stored, 0, IV_BYTES));
+            cipher.updateAAD((path + '\0' + key).getBytes(StandardCharsets.UTF_8));
+            return cipher.doFinal(stored, IV_BYTES, stored.length - IV_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not decrypt the stored response", e);
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String message)
+            throws IOException {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message(message)
+                .path(request.getServletPath())
+                .build();
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.agribiz.Security;
+
+import com.example.agribiz.Repository.BatchedDelete;
+import com.example.agribiz.Repository.IdempotencyKeyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+// Expired keys are dead weight: IdempotencyFilter treats them as unused anyway
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyKeyPurger {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.idempotency.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        long purged = BatchedDelete.deleteAll(transactionTemplate, purgeBatchSize,
+                batchSize -> idempotencyKeyRepository.deleteExpiredBatch(now, batchSize));
+
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.example.agribiz.Security;
 
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Monitoring.RequestProfiler;
+import com.example.agribiz.Service.User.CredentialVersionService;
 import com.example.agribiz.Service.User.JwtService;
+import com.example.agribiz.Service.User.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -17,6 +23,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
@@ -25,6 +32,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final CredentialVersionService credentialVersionService;
+
+    // Build the Authentication from token claims instead of loading the user on every request
+    @Value("${jwt.claims-only-auth.enabled:false}")
+    private boolean claimsOnlyAuthentication;
 
     @Override
     protected void doFilterInternal(
@@ -54,25 +66,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            userEmail = jwtService.extractUsername(jwt);
+            VerifiedToken verifiedToken;
+            try (var phase = RequestProfiler.phase("jwt.verify")) {
+                verifiedToken = jwtService.verify(jwt);
+            }
+            userEmail = verifiedToken.subject();
             log.debug("Extracted username from JWT: {}", userEmail);
 
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(
-                            new WebAuthenticationDetailsSource().buildDetails(request)
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    log.debug("User {} authenticated successfully", userEmail);
+                if (claimsOnlyAuthentication && hasIdentityClaims(verifiedToken)) {
+                    authenticateFromClaims(verifiedToken, request);
                 } else {
-                    log.debug("JWT token is invalid for user: {}", userEmail);
+                    authenticateFromUserDetails(verifiedToken, request);
                 }
             }
         } catch (Exception e) {
@@ -81,4 +86,67 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private void authenticateFromUserDetails(VerifiedToken verifiedToken, HttpServletRequest request) {
+        String userEmail = verifiedToken.subject();
+        UserDetails userDetails;
+        try (var phase = RequestProfiler.phase("jwt.load-user")) {
+            userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        }
+
+        // The claims path gets this from findActiveCredentialVersion; a loaded user has to be checked here
+        if (!userDetails.isEnabled() || !userDetails.isAccountNonLocked()) {
+            log.debug("JWT token rejected for disabled or locked user: {}", userEmail);
+            return;
+        }
+
+        if (jwtService.isTokenValid(verifiedToken, userDetails)) {
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails,
+                    null,
+                    userDetails.getAuthorities()
+            );
+            authToken.setDetails(
+                    new WebAuthenticationDetailsSource().buildDetails(request)
+            );
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+            log.debug("User {} authenticated successfully", userEmail);
+        } else {
+            log.debug("JWT token is invalid for user: {}", userEmail);
+        }
+    }
+
+    private void authenticateFromClaims(VerifiedToken verifiedToken, HttpServletRequest request) {
+        String userEmail = verifiedToken.subject();
+        Long userId = verifiedToken.claim(JwtService.CLAIM_USER_ID, Number.class).longValue();
+        long credentialVersion = verifiedToken.claim(JwtService.CLAIM_CREDENTIAL_VERSION, Number.class).longValue();
+        Role role = Role.valueOf(verifiedToken.claim(JwtService.CLAIM_ROLE, String.class));
+
+        // Tokens issued before the last password change carry a stale credential version
+        boolean current;
+        try (var phase = RequestProfiler.phase("jwt.credential-check")) {
+            current = credentialVersionService.isCurrent(userId, credentialVersion);
+        }
+        if (!current) {
+            log.debug("JWT token has been revoked for user: {}", userEmail);
+            return;
+        }
+
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                new ClaimsPrincipal(userId, userEmail, role),
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role.name()))
+        );
+        authToken.setDetails(
+                new WebAuthenticationDetailsSource().buildDetails(request)
+        );
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        log.debug("User {} authenticated from token claims", userEmail);
+    }
+
+    private boolean hasIdentityClaims(VerifiedToken verifiedToken) {
+        return verifiedToken.claim(JwtService.CLAIM_USER_ID, Number.class) != null
+                && verifiedToken.claim(JwtService.CLAIM_ROLE, String.class) != null
+                && verifiedToken.claim(JwtService.CLAIM_CREDENTIAL_VERSION, Number.class) != null;
+    }
+}
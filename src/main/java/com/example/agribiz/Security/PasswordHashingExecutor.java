@@ -0,0 +1,114 @@
+package com.example.agribiz.Security;
+
+import com.example.agribiz.Exception.ServiceOverloadedException;
+import com.example.agribiz.Monitoring.RequestProfiler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Runs CPU-heavy password hashing on a fixed pool so it can't take every core from cheap endpoints
+@Component
+@Slf4j
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration maxWait;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${app.security.password-hashing.threads:0}") int threads,
+            @Value("${app.security.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.security.password-hashing.max-wait:5s}") Duration maxWait
+    ) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxWait = maxWait;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("agribiz.password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("agribiz.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("agribiz.password.hashing.rejected")
+                .description("Password hashing requests shed because the queue was full")
+                .register(meterRegistry);
+
+        log.info("Password hashing pool started with {} threads and queue capacity {}", poolSize, queueCapacity);
+    }
+
+    // The phase covers the wait for a worker as well as the hash itself
+    public <T> T execute(String operation, Supplier<T> task) {
+        try (var phase = RequestProfiler.phase("password." + operation)) {
+            return submitAndWait(operation, task);
+        }
+    }
+
+    private <T> T submitAndWait(String operation, Supplier<T> task) {
+        Timer timer = Timer.builder("agribiz.password.hashing")
+                .tag("operation", operation)
+                .register(meterRegistry);
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.record(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceOverloadedException("Server is busy. Please try again shortly.", e);
+        }
+
+        try {
+            return future.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(future);
+            rejected.increment();
+            throw new ServiceOverloadedException("Server is busy. Please try again shortly.", e);
+        } catch (InterruptedException e) {
+            abandon(future);
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Password hashing was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    // BCrypt never checks for interrupts, so a hash that has already started runs to completion and its result
+    // is dropped; at most one such hash per worker outlives its caller. A task still queued is cancelled and
+    // taken out of the queue, so it neither runs nor holds a slot that a live request could use.
+    private void abandon(Future<?> future) {
+        future.cancel(false);
+        if (future instanceof Runnable queued) {
+            executor.remove(queued);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
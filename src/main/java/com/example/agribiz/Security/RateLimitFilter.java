@@ -0,0 +1,177 @@
+package com.example.agribiz.Security;
+
+import com.example.agribiz.Dto.Response.ErrorResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+// Throttles the public auth endpoints per client IP and per target account
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final RateLimitProperties properties;
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    private List<IpAddressMatcher> trustedProxies = List.of();
+
+    @PostConstruct
+    void init() {
+        trustedProxies = properties.getTrustedProxies().stream()
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled()
+                || !"POST".equals(request.getMethod())
+                || findLimit(request.getServletPath()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        final String path = request.getServletPath();
+        RateLimitProperties.EndpointLimit limit = findLimit(path);
+        String clientIp = clientIp(request);
+
+        Duration wait = rateLimiter.tryAcquire(
+                "ip:" + path + ":" + clientIp,
+                limit.getIpCapacity(),
+                limit.getIpRefillInterval());
+        if (!wait.isZero()) {
+            log.warn("Rate limit exceeded for IP {} on {}", clientIp, path);
+            rejectThrottled(request, response, wait);
+            return;
+        }
+
+        // The auth endpoints take small JSON bodies; anything bigger is refused rather than passed on cut short
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            reject(request, response, HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Request body must not exceed " + MAX_BODY_BYTES + " bytes.");
+            return;
+        }
+        CachedBodyHttpServletRequest cachedRequest = new CachedBodyHttpServletRequest(request, body);
+        String email = extractEmail(cachedRequest.getBody());
+        if (email != null) {
+            wait = rateLimiter.tryAcquire(
+                    "account:" + path + ":" + email,
+                    limit.getAccountCapacity(),
+                    limit.getAccountRefillInterval());
+            if (!wait.isZero()) {
+                log.warn("Rate limit exceeded for account {} on {}", email, path);
+                rejectThrottled(request, response, wait);
+                return;
+            }
+        }
+
+        filterChain.doFilter(cachedRequest, response);
+    }
+
+    // Each trusted proxy appends the address it saw, so the client is the right-most hop that isn't one of ours;
+    // anything further left was sent by the client itself
+    String clientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor == null || !isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !isTrustedProxy(hop)) {
+                return hop;
+            }
+        }
+        return remoteAddr;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher trustedProxy : trustedProxies) {
+            try {
+                if (trustedProxy.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not an IP address, so certainly not one of our proxies
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private RateLimitProperties.EndpointLimit findLimit(String path) {
+        for (RateLimitProperties.EndpointLimit limit : properties.getEndpoints().values()) {
+            if (path.equals(limit.getPath())) {
+                return limit;
+            }
+        }
+        return null;
+    }
+
+    private String extractEmail(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() ? email.asText().trim().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException e) {
+            // Malformed bodies are rejected by the controller; only the IP limit applies to them
+            return null;
+        }
+    }
+
+    private void rejectThrottled(HttpServletRequest request, HttpServletResponse response, Duration wait)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, (wait.toMillis() + 999) / 1000);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        reject(request, response, HttpStatus.TOO_MANY_REQUESTS,
+                "Too many requests. Please try again in " + retryAfterSeconds + " seconds.");
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String message)
+            throws IOException {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message(message)
+                .path(request.getServletPath())
+                .build();
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
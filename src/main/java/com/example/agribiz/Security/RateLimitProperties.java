@@ -0,0 +1,49 @@
+package com.example.agribiz.Security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Upper bound on tracked buckets; idle ones are dropped after idleTimeout
+    private long maxTrackedKeys = 100_000;
+
+    private Duration idleTimeout = Duration.ofMinutes(15);
+
+    // Addresses or CIDR ranges of our own load balancers. Requests from them are limited by the
+    // X-Forwarded-For hop they appended; from anyone else the header is client-controlled and ignored.
+    private List<String> trustedProxies = new ArrayList<>();
+
+    private Map<String, EndpointLimit> endpoints = new LinkedHashMap<>(Map.of(
+            "login", new EndpointLimit("/api/v1/auth/login", 20, Duration.ofSeconds(3), 5, Duration.ofMinutes(1)),
+            "verify-email", new EndpointLimit("/api/v1/auth/verify-email", 20, Duration.ofSeconds(3), 5, Duration.ofMinutes(1)),
+            "resend-otp", new EndpointLimit("/api/v1/auth/resend-otp", 5, Duration.ofMinutes(1), 3, Duration.ofMinutes(5)),
+            "forgot-password", new EndpointLimit("/api/v1/auth/forgot-password", 5, Duration.ofMinutes(1), 3, Duration.ofMinutes(15))
+    ));
+
+    // Each limit is a burst capacity plus the time it takes to earn back one request
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EndpointLimit {
+        private String path;
+        private int ipCapacity = 20;
+        private Duration ipRefillInterval = Duration.ofSeconds(3);
+        private int accountCapacity = 5;
+        private Duration accountRefillInterval = Duration.ofMinutes(1);
+    }
+}
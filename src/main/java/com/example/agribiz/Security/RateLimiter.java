@@ -0,0 +1,27 @@
+package com.example.agribiz.Security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class RateLimiter {
+
+    private final Cache<String, TokenBucket> buckets;
+
+    public RateLimiter(RateLimitProperties properties) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedKeys())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+    }
+
+    // Returns Duration.ZERO when the call is allowed, otherwise how long the caller should wait
+    public Duration tryAcquire(String key, int capacity, Duration refillInterval) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(now));
+        return Duration.ofNanos(bucket.tryConsume(now, capacity, refillInterval.toNanos()));
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.agribiz.Security;
 
+import com.example.agribiz.Service.User.UserPasswordUpgradeService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -15,6 +18,7 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -23,6 +27,7 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -31,11 +36,16 @@ import java.util.List;
 public class SecurityConfiguration {
 
     private final UserDetailsService userDetailsService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final BCryptStrengthCalibrator bCryptStrengthCalibrator;
+    private final UserPasswordUpgradeService userPasswordUpgradeService;
 
     @Bean
     public SecurityFilterChain securityFilterChain(
             HttpSecurity http,
-            @Lazy JwtAuthenticationFilter jwtAuthFilter
+            @Lazy JwtAuthenticationFilter jwtAuthFilter,
+            RateLimitFilter rateLimitFilter,
+            IdempotencyFilter idempotencyFilter
     ) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
@@ -50,6 +60,8 @@ public class SecurityConfiguration {
                                         "/webjars/**"
                                 ).permitAll()
                                 .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
+                                // Slow request breakdowns include paths and timings of other users' requests
+                                .requestMatchers(EndpointRequest.to("slowrequests")).hasRole("ADMIN")
                                 .requestMatchers("/api/v1/farmer/**").hasRole("FARMER")
                                 .requestMatchers("/api/v1/buyer/**").hasRole("BUYER")
                                 .requestMatchers("/api/v1/investor/**").hasRole("INVESTOR")
@@ -57,17 +69,39 @@ public class SecurityConfiguration {
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider())
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                // Rate limiting runs first so throttled requests never reach token parsing or BCrypt
+                .addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                // After both, so throttled retries aren't recorded and the caller's token is already checked
+                .addFilterAfter(idempotencyFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
+    // Boot would also register the filter as a plain servlet filter ahead of the security chain; it must
+    // only run at its place inside the chain
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilterRegistration(IdempotencyFilter idempotencyFilter) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(idempotencyFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    // Same for rate limiting, which would otherwise run as a servlet filter and again in the chain
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOriginPatterns(List.of("*"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of(IdempotencyFilter.REPLAYED_HEADER));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -80,6 +114,8 @@ public class SecurityConfiguration {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Rehashes to the configured cost on successful login
+        authProvider.setUserDetailsPasswordService(userPasswordUpgradeService);
         return authProvider;
     }
 
@@ -90,6 +126,10 @@ public class SecurityConfiguration {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        BCryptPasswordEncoder bcrypt = new TargetStrengthBCryptPasswordEncoder(bCryptStrengthCalibrator.strength());
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        // Hashes stored before the {bcrypt} prefix was introduced are still plain BCrypt
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new BoundedPasswordEncoder(delegating, passwordHashingExecutor);
     }
 }
\ No newline at end of file
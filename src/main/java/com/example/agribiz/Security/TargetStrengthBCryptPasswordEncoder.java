@@ -0,0 +1,27 @@
+package com.example.agribiz.Security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+// Flags hashes for rehash when their cost is either below or above the configured one
+public class TargetStrengthBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private final int strength;
+
+    public TargetStrengthBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // BCrypt hashes look like $2a$10$..., with the cost in characters 4-5
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6)) != strength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
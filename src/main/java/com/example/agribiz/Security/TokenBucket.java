@@ -0,0 +1,30 @@
+package com.example.agribiz.Security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket using the generic cell rate algorithm: the whole state is one CAS-updated long
+final class TokenBucket {
+
+    // Time at which the bucket would be completely refilled
+    private final AtomicLong theoreticalArrivalNanos;
+
+    TokenBucket(long nowNanos) {
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    // Returns 0 when a token was taken, otherwise the nanoseconds until one becomes available
+    long tryConsume(long nowNanos, int capacity, long refillIntervalNanos) {
+        long burstWindowNanos = capacity * refillIntervalNanos;
+        while (true) {
+            long current = theoreticalArrivalNanos.get();
+            long next = Math.max(current, nowNanos) + refillIntervalNanos;
+            long waitNanos = next - burstWindowNanos - nowNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.agribiz.Service.User;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Deletes sign-ups that were never verified and clears expired tokens, in small rate-limited chunks
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountReaper {
+
+    // Session-level advisory lock key shared by every node; whoever holds it is the leader for that run
+    static final long LEADER_LOCK_KEY = 0x4147524942495A01L;
+
+    // Keyset on (created_at, id) so each chunk starts past the rows already deleted instead of re-walking their
+    // dead index entries; the range on created_at alone lets idx_users_unverified_created_at drive the scan
+    static final String DELETE_UNVERIFIED_CHUNK = """
+            DELETE FROM users WHERE id IN (
+                SELECT id FROM users
+                WHERE is_verified = false AND created_at < ?
+                  AND created_at >= ? AND (created_at > ? OR id > ?)
+                ORDER BY created_at, id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, email, created_at""";
+
+    static final String CLEAR_RESET_TOKEN_CHUNK = """
+            UPDATE users SET reset_token = NULL, reset_token_expiry = NULL WHERE id IN (
+                SELECT id FROM users
+                WHERE reset_token IS NOT NULL AND reset_token_expiry < ? AND id > ?
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, email""";
+
+    static final String CLEAR_VERIFICATION_TOKEN_CHUNK = """
+            UPDATE users SET verification_token = NULL, verification_token_expiry = NULL WHERE id IN (
+                SELECT id FROM users
+                WHERE verification_token IS NOT NULL AND verification_token_expiry < ? AND id > ?
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, email""";
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserCacheInvalidator userCacheInvalidator;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.reaper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.reaper.unverified-retention:7d}")
+    private Duration unverifiedRetention;
+
+    @Value("${app.reaper.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.reaper.max-rows-per-second:1000}")
+    private int maxRowsPerSecond;
+
+    @Scheduled(initialDelayString = "${app.reaper.initial-delay-ms:60000}",
+            fixedDelayString = "${app.reaper.interval-ms:900000}")
+    public void reap() {
+        if (!enabled || !userCacheInvalidator.isPostgres()) {
+            return;
+        }
+
+        // The lock lives on this connection, so it is held outside the per-chunk transactions and released with it
+        try (Connection lockConnection = dataSource.getConnection()) {
+            if (!tryLock(lockConnection)) {
+                log.debug("Account reaper is running on another node, skipping");
+                return;
+            }
+            try {
+                runAsLeader();
+            } finally {
+                unlock(lockConnection);
+            }
+        } catch (SQLException e) {
+            log.warn("Account reaper could not take the leader lock: {}", e.getMessage());
+        }
+    }
+
+    private void runAsLeader() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            long unverified = deleteUnverified(now.minus(unverifiedRetention));
+            long resetTokens = clearExpired(CLEAR_RESET_TOKEN_CHUNK, now);
+            long verificationTokens = clearExpired(CLEAR_VERIFICATION_TOKEN_CHUNK, now);
+
+            record("unverified_deleted", unverified);
+            record("reset_token_cleared", resetTokens);
+            record("verification_token_cleared", verificationTokens);
+            if (unverified + resetTokens + verificationTokens > 0) {
+                log.info("Account reaper deleted {} unverified accounts, cleared {} reset and {} verification tokens",
+                        unverified, resetTokens, verificationTokens);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Account reaper interrupted, remaining rows are left for the next run");
+        } finally {
+            sample.stop(meterRegistry.timer("agribiz.reaper.run"));
+        }
+    }
+
+    private long deleteUnverified(LocalDateTime cutoff) throws InterruptedException {
+        long total = 0;
+        LocalDateTime afterCreatedAt = EPOCH;
+        long afterId = 0;
+        while (true) {
+            long started = System.nanoTime();
+            LocalDateTime keyCreatedAt = afterCreatedAt;
+            long keyId = afterId;
+            List<ReapedRow> chunk = transactionTemplate.execute(status -> {
+                List<ReapedRow> rows = jdbcTemplate.query(DELETE_UNVERIFIED_CHUNK,
+                        (rs, rowNum) -> new ReapedRow(rs.getLong("id"), rs.getString("email"),
+                                rs.getTimestamp("created_at").toLocalDateTime()),
+                        Timestamp.valueOf(cutoff), Timestamp.valueOf(keyCreatedAt), Timestamp.valueOf(keyCreatedAt),
+                        keyId, chunkSize);
+                rows.forEach(row -> userCacheInvalidator.invalidate(row.id(), row.email()));
+                return rows;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                return total;
+            }
+
+            total += chunk.size();
+            for (ReapedRow row : chunk) {
+                if (row.createdAt().isAfter(afterCreatedAt)
+                        || (row.createdAt().isEqual(afterCreatedAt) && row.id() > afterId)) {
+                    afterCreatedAt = row.createdAt();
+                    afterId = row.id();
+                }
+            }
+            if (chunk.size() < chunkSize) {
+                return total;
+            }
+            throttle(chunk.size(), started);
+        }
+    }
+
+    private long clearExpired(String sql, LocalDateTime now) throws InterruptedException {
+        long total = 0;
+        long afterId = 0;
+        while (true) {
+            long started = System.nanoTime();
+            long keyId = afterId;
+            List<ReapedRow> chunk = transactionTemplate.execute(status -> {
+                List<ReapedRow> rows = jdbcTemplate.query(sql,
+                        (rs, rowNum) -> new ReapedRow(rs.getLong("id"), rs.getString("email"), null),
+                        Timestamp.valueOf(now), keyId, chunkSize);
+                // Cached copies still carry the token, and saving one would write it back
+                rows.forEach(row -> userCacheInvalidator.invalidate(row.id(), row.email()));
+                return rows;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                return total;
+            }
+
+            total += chunk.size();
+            afterId = chunk.stream().mapToLong(ReapedRow::id).max().orElse(afterId);
+            if (chunk.size() < chunkSize) {
+                return total;
+            }
+            throttle(chunk.size(), started);
+        }
+    }
+
+    // Sleeps off whatever is left of the time budget for this chunk so the reaper never exceeds its row rate
+    private void throttle(int rows, long startedNanos) throws InterruptedException {
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long budgetNanos = TimeUnit.SECONDS.toNanos(rows) / maxRowsPerSecond;
+        long remainingNanos = budgetNanos - (System.nanoTime() - startedNanos);
+        if (remainingNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+        }
+    }
+
+    private void record(String action, long rows) {
+        DistributionSummary.builder("agribiz.reaper.rows")
+                .description("Rows processed by one account reaper run")
+                .tag("action", action)
+                .register(meterRegistry)
+                .record(rows);
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, LEADER_LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    // Pooled connections outlive the session lock holder, so the lock has to be released explicitly
+    private static void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, LEADER_LOCK_KEY);
+            statement.execute();
+        }
+    }
+
+    private record ReapedRow(long id, String email, LocalDateTime createdAt) {
+    }
+}
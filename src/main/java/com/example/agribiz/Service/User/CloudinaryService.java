@@ -1,21 +1,32 @@
 package com.example.agribiz.Service.User;
 
 import com.cloudinary.Cloudinary;
-import com.cloudinary.Transformation;
+import com.cloudinary.ProgressCallback;
 import com.cloudinary.utils.ObjectUtils;
+import com.example.agribiz.Monitoring.RequestProfiler;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.function.LongConsumer;
 
 @Service
+@ConditionalOnProperty(name = "app.media.store", havingValue = "cloudinary", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
-public class CloudinaryService {
+public class CloudinaryService implements MediaStore {
+
+    private final MeterRegistry meterRegistry;
 
     @Value("${cloudinary.cloud-name}")
     private String cloudName;
@@ -26,77 +37,83 @@ public class CloudinaryService {
     @Value("${cloudinary.api-secret}")
     private String apiSecret;
 
+    // Created once at startup; the old lazy getter raced and could build several clients
     private Cloudinary cloudinary;
 
+    @PostConstruct
+    void init() {
+        cloudinary = new Cloudinary(ObjectUtils.asMap(
+                "cloud_name", cloudName,
+                "api_key", apiKey,
+                "api_secret", apiSecret));
+    }
+
     private Cloudinary getCloudinary() {
-        if (cloudinary == null) {
-            cloudinary = new Cloudinary(ObjectUtils.asMap(
-                    "cloud_name", cloudName,
-                    "api_key", apiKey,
-                    "api_secret", apiSecret));
-        }
         return cloudinary;
     }
 
-    public String uploadImage(MultipartFile file) throws IOException {
-        log.info("Uploading image to Cloudinary: {}", file.getOriginalFilename());
+    @Override
+    public StoredImage store(Path file, LongConsumer progress) throws IOException {
+        return uploadImage(file.toFile(), (uploaded, total) -> progress.accept(uploaded));
+    }
 
-        validateFile(file);
+    @Override
+    public void delete(String key) throws IOException {
+        deleteImage(key);
+    }
 
-        // Create transformation using the Transformation class
-        Transformation transformation = new Transformation()
-                .width(400)
-                .height(400)
-                .crop("fill")
-                .gravity("face");
+    // Streams an already-rendered image from disk; resizing happens locally in ImageRenditionService
+    public StoredImage uploadImage(File file, ProgressCallback progressCallback) throws IOException {
+        log.info("Uploading image to Cloudinary: {} ({} bytes)", file.getName(), file.length());
 
         Map<String, Object> uploadOptions = ObjectUtils.asMap(
                 "resource_type", "image",
-                "folder", "potato-platform/profiles",
-                "transformation", transformation
+                "folder", "potato-platform/profiles"
         );
 
-        Map uploadResult = getCloudinary().uploader().upload(file.getBytes(), uploadOptions);
+        long bytes = file.length();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map uploadResult;
+        try (var phase = RequestProfiler.phase("cloudinary.upload")) {
+            uploadResult = getCloudinary().uploader().upload(file, uploadOptions, progressCallback);
+        } catch (IOException | RuntimeException e) {
+            sample.stop(timer("upload", "failure"));
+            throw e;
+        }
+        sample.stop(timer("upload", "success"));
+        DistributionSummary.builder("agribiz.media.upload.bytes")
+                .baseUnit("bytes")
+                .tag("store", "cloudinary")
+                .register(meterRegistry)
+                .record(bytes);
         String imageUrl = (String) uploadResult.get("secure_url");
 
         log.info("Image uploaded successfully to Cloudinary: {}", imageUrl);
-        return imageUrl;
+        return new StoredImage(imageUrl, (String) uploadResult.get("public_id"));
     }
 
+    // Only called by MediaAssetService once nothing references the image
     public void deleteImage(String publicId) throws IOException {
         log.info("Deleting image from Cloudinary: {}", publicId);
 
-        Map deleteResult = getCloudinary().uploader().destroy(publicId, ObjectUtils.emptyMap());
-
-        log.info("Image deletion result: {}", deleteResult.get("result"));
-    }
-
-    private void validateFile(MultipartFile file) {
-        if (file.isEmpty()) {
-            throw new IllegalArgumentException("File is empty");
-        }
-
-        String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("image/")) {
-            throw new IllegalArgumentException("File must be an image");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map deleteResult;
+        try (var phase = RequestProfiler.phase("cloudinary.delete")) {
+            deleteResult = getCloudinary().uploader().destroy(publicId, ObjectUtils.emptyMap());
+        } catch (IOException | RuntimeException e) {
+            sample.stop(timer("delete", "failure"));
+            throw e;
         }
+        sample.stop(timer("delete", "success"));
 
-        // Check file size (5MB limit)
-        long maxSize = 5 * 1024 * 1024; // 5MB
-        if (file.getSize() > maxSize) {
-            throw new IllegalArgumentException("File size must be less than 5MB");
-        }
-
-        // Check allowed image types
-        if (!isAllowedImageType(contentType)) {
-            throw new IllegalArgumentException("Only JPEG, PNG, and GIF images are allowed");
-        }
+        log.info("Image deletion result: {}", deleteResult.get("result"));
     }
 
-    private boolean isAllowedImageType(String contentType) {
-        return contentType.equals("image/jpeg") ||
-                contentType.equals("image/png") ||
-                contentType.equals("image/gif") ||
-                contentType.equals("image/jpg");
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("agribiz.media.store")
+                .tag("store", "cloudinary")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CredentialVersionService {
+
+    private final UserRepository userRepository;
+
+    @Value("${jwt.claims-only-auth.revocation-cache-ttl:30s}")
+    private Duration revocationCacheTtl;
+
+    @Value("${jwt.claims-only-auth.revocation-cache-max-size:100000}")
+    private long revocationCacheMaxSize;
+
+    // userId -> current credential version, empty when the account is disabled, locked or gone. Holds the
+    // load itself, so an eviction also discards a load that was already running.
+    private AsyncCache<Long, Optional<Long>> versions;
+
+    @PostConstruct
+    void init() {
+        versions = Caffeine.newBuilder()
+                .maximumSize(revocationCacheMaxSize)
+                .expireAfterWrite(revocationCacheTtl)
+                .buildAsync();
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        CompletableFuture<Optional<Long>> loading = new CompletableFuture<>();
+        CompletableFuture<Optional<Long>> cached = versions.get(userId, (key, executor) -> loading);
+        if (cached == loading) {
+            // The caller runs the query outside the cache's compute lock so it never pins a virtual thread's
+            // carrier; concurrent misses wait on this future instead of querying too
+            try {
+                loading.complete(userRepository.findActiveCredentialVersion(userId));
+            } catch (RuntimeException e) {
+                loading.completeExceptionally(e);
+            }
+        }
+
+        Optional<Long> current;
+        try {
+            current = cached.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        if (current.isEmpty()) {
+            log.debug("Rejecting token for inactive or missing user: {}", userId);
+            return false;
+        }
+        return current.get() == tokenVersion;
+    }
+
+    public void evict(Long userId) {
+        if (userId != null) {
+            versions.synchronous().invalidate(userId);
+        }
+    }
+
+    public void evictAll() {
+        versions.synchronous().invalidateAll();
+    }
+}
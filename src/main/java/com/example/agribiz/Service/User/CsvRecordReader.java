@@ -0,0 +1,122 @@
+package com.example.agribiz.Service.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal RFC 4180 reader that pulls one record at a time, so a file is never held in memory
+class CsvRecordReader implements Closeable {
+
+    private static final int MAX_FIELD_LENGTH = 10_000;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private boolean eof;
+    private long line = 1;
+    private long recordLine;
+
+    CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Line on which the record last returned by next() started; quoted fields may span lines
+    long recordLine() {
+        return recordLine;
+    }
+
+    // Returns null at end of input
+    List<String> next() throws IOException {
+        int c = read();
+        // A byte order mark some spreadsheet exports put at the start
+        if (c == '\uFEFF' && recordLine == 0) {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStart = true;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        append(field, '"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    append(field, (char) c);
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+                c = read();
+                continue;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    // Step back over whatever followed a lone CR; read() always leaves it in the buffer
+                    if (read() != '\n' && !eof) {
+                        position--;
+                    }
+                }
+                if (c != -1) {
+                    line++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                append(field, (char) c);
+            }
+            fieldStart = false;
+            c = read();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void append(StringBuilder field, char c) throws IOException {
+        if (field.length() >= MAX_FIELD_LENGTH) {
+            throw new IOException("Field on line " + recordLine + " is longer than " + MAX_FIELD_LENGTH + " characters");
+        }
+        field.append(c);
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            if (eof) {
+                return -1;
+            }
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                eof = true;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
@@ -1,21 +1,89 @@
 package com.example.agribiz.Service.User;
 
+import com.example.agribiz.Model.User;
 import com.example.agribiz.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @Service
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.user-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.user-cache.ttl:5m}")
+    private Duration ttl;
+
+    // Holds the load itself, so an eviction also discards a load that was already running
+    private AsyncCache<String, User> userCache;
+
+    @PostConstruct
+    void init() {
+        userCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache, "userDetails");
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username));
+        CompletableFuture<User> loading = new CompletableFuture<>();
+        CompletableFuture<User> cached = userCache.get(username, (key, executor) -> loading);
+        if (cached == loading) {
+            // The caller runs the query outside the cache's compute lock so it never pins a virtual thread's
+            // carrier; concurrent misses wait on this future instead of querying too. findByEmail is
+            // read-only on its own, so with replica routing a miss is served by a replica unless the
+            // caller's transaction writes
+            try {
+                loading.complete(userRepository.findByEmail(username)
+                        // Cache a detached copy so later changes to the managed entity don't leak into it
+                        .map(found -> found.toBuilder().build())
+                        .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username)));
+            } catch (RuntimeException e) {
+                // Failed loads aren't cached
+                loading.completeExceptionally(e);
+            }
+        }
+        return join(cached);
+    }
+
+    private static User join(CompletableFuture<User> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            userCache.synchronous().invalidate(email);
+        }
+    }
+
+    public void evictAll() {
+        userCache.synchronous().invalidateAll();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,251 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Model.EmailOutboxMessage;
+import com.example.agribiz.Model.EmailOutboxStatus;
+import com.example.agribiz.Monitoring.RequestProfiler;
+import com.example.agribiz.Repository.BatchedDelete;
+import com.example.agribiz.Repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Drains the email outbox in batches, sending each batch over a single SMTP connection. Rows are claimed,
+// sent and recorded in separate steps, so a slow mail server never holds a database transaction open.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final JavaMailSenderImpl mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spring.mail.username}")
+    private String fromEmail;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff:30s}")
+    private Duration initialBackoff;
+
+    @Value("${app.mail.outbox.max-backoff:1h}")
+    private Duration maxBackoff;
+
+    // A claimed row stays SENDING for this long before another dispatcher may pick it up again
+    @Value("${app.mail.outbox.lease:5m}")
+    private Duration lease;
+
+    // Sent and dead messages are kept this long for support questions, then deleted
+    @Value("${app.mail.outbox.retention:7d}")
+    private Duration retention;
+
+    @Value("${app.mail.outbox.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        List<EmailOutboxMessage> batch;
+        do {
+            batch = transactionTemplate.execute(status -> claimDueBatch());
+            if (batch == null || batch.isEmpty()) {
+                return;
+            }
+            dispatchBatch(batch);
+        } while (batch.size() == batchSize);
+    }
+
+    // Commits the claim before anything is sent, so no row lock or pooled connection is held across SMTP
+    private List<EmailOutboxMessage> claimDueBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutboxMessage> batch = outboxRepository.lockDueBatch(now, batchSize);
+        for (EmailOutboxMessage outboxMessage : batch) {
+            outboxMessage.setStatus(EmailOutboxStatus.SENDING);
+            outboxMessage.setNextAttemptAt(now.plus(lease));
+        }
+        return batch;
+    }
+
+    private void dispatchBatch(List<EmailOutboxMessage> batch) {
+        Map<Long, Exception> outcomes;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // Off the request thread, so this phase only shows up in JFR recordings
+        try (var phase = RequestProfiler.phase("smtp.send")) {
+            outcomes = send(batch);
+        }
+        // One SMTP session per batch, so this is the latency of the mail server rather than of a message
+        sample.stop(Timer.builder("agribiz.mail.send")
+                .tag("outcome", outcomes.values().stream().allMatch(Objects::isNull) ? "success" : "failure")
+                .register(meterRegistry));
+
+        int failed = transactionTemplate.execute(status -> recordOutcomes(outcomes));
+        log.info("Dispatched {} outbox emails ({} failed)", batch.size(), failed);
+    }
+
+    // Drives the SMTP session itself rather than through JavaMailSender.send, which reports a failed connect or
+    // close for the whole batch even when some messages already went out. Maps each id to its failure, or to
+    // null once the server has accepted the message.
+    private Map<Long, Exception> send(List<EmailOutboxMessage> batch) {
+        Map<Long, Exception> outcomes = new HashMap<>();
+        Transport transport;
+        try {
+            transport = connect();
+        } catch (MessagingException e) {
+            batch.forEach(outboxMessage -> outcomes.put(outboxMessage.getId(), e));
+            return outcomes;
+        }
+
+        try {
+            for (EmailOutboxMessage outboxMessage : batch) {
+                if (!transport.isConnected()) {
+                    outcomes.put(outboxMessage.getId(), new MessagingException("Mail server connection lost"));
+                    continue;
+                }
+                try {
+                    MimeMessage mimeMessage = toMimeMessage(outboxMessage);
+                    transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                    outcomes.put(outboxMessage.getId(), null);
+                } catch (MessagingException | MailException e) {
+                    outcomes.put(outboxMessage.getId(), e);
+                }
+            }
+        } finally {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                // Whatever the server accepted before this is delivered
+                log.warn("Failed to close mail server connection: {}", e.getMessage());
+            }
+        }
+        return outcomes;
+    }
+
+    private Transport connect() throws MessagingException {
+        String username = mailSender.getUsername();
+        String password = mailSender.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            password = null;
+        }
+        String protocol = Objects.requireNonNullElse(mailSender.getProtocol(), JavaMailSenderImpl.DEFAULT_PROTOCOL);
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+        return transport;
+    }
+
+    private int recordOutcomes(Map<Long, Exception> outcomes) {
+        LocalDateTime now = LocalDateTime.now();
+        int failed = 0;
+        for (EmailOutboxMessage outboxMessage : outboxRepository.findAllById(outcomes.keySet())) {
+            Exception failure = outcomes.get(outboxMessage.getId());
+            if (failure == null) {
+                outboxMessage.setStatus(EmailOutboxStatus.SENT);
+                outboxMessage.setSentAt(now);
+                outboxMessage.setLastError(null);
+                // OTP codes and reset links have no business outliving their delivery
+                outboxMessage.setBody(null);
+                countMessage("sent");
+                // Time from queueing to delivery, retries included: what the user waiting for an OTP sees
+                if (outboxMessage.getCreatedAt() != null) {
+                    Timer.builder("agribiz.mail.delivery.delay")
+                            .register(meterRegistry)
+                            .record(Duration.between(outboxMessage.getCreatedAt(), now));
+                }
+            } else {
+                recordFailure(outboxMessage, failure, now);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.purge-interval-ms:3600000}")
+    public void purgeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        long purged = BatchedDelete.deleteAll(transactionTemplate, purgeBatchSize,
+                batchSize -> outboxRepository.deleteFinishedBatch(cutoff, batchSize));
+
+        if (purged > 0) {
+            log.info("Purged {} sent or dead outbox emails", purged);
+        }
+    }
+
+    private void recordFailure(EmailOutboxMessage outboxMessage, Exception failure, LocalDateTime now) {
+        int attempts = outboxMessage.getAttempts() + 1;
+        outboxMessage.setAttempts(attempts);
+        outboxMessage.setLastError(truncate(failure.getMessage()));
+
+        if (attempts >= maxAttempts) {
+            outboxMessage.setStatus(EmailOutboxStatus.DEAD);
+            countMessage("dead");
+            log.error("Giving up on email {} to {} after {} attempts",
+                    outboxMessage.getId(), outboxMessage.getRecipient(), attempts, failure);
+            return;
+        }
+
+        outboxMessage.setStatus(EmailOutboxStatus.PENDING);
+        outboxMessage.setNextAttemptAt(now.plus(backoff(attempts)));
+        countMessage("retrying");
+        log.warn("Failed to send email {} to {} (attempt {}), retrying at {}: {}",
+                outboxMessage.getId(), outboxMessage.getRecipient(), attempts,
+                outboxMessage.getNextAttemptAt(), failure.getMessage());
+    }
+
+    private void countMessage(String result) {
+        Counter.builder("agribiz.mail.messages")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private MimeMessage toMimeMessage(EmailOutboxMessage outboxMessage) throws MessagingException {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(fromEmail);
+        message.setTo(outboxMessage.getRecipient());
+        message.setSubject(outboxMessage.getSubject());
+        message.setText(outboxMessage.getBody());
+        message.setSentDate(new Date());
+
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        message.copyTo(new MimeMailMessage(mimeMessage));
+        mimeMessage.saveChanges();
+        return mimeMessage;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -1,21 +1,27 @@
 package com.example.agribiz.Service.User;
 
+import com.example.agribiz.Model.EmailOutboxMessage;
 import com.example.agribiz.Model.User;
+import com.example.agribiz.Monitoring.RequestProfiler;
+import com.example.agribiz.Repository.EmailOutboxRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private final EmailOutboxRepository outboxRepository;
+    private final JdbcTemplate jdbcTemplate;
     private final SecureRandom secureRandom = new SecureRandom();
 
     @Value("${app.name}")
@@ -24,22 +30,9 @@ public class EmailService {
     @Value("${app.frontend.url}")
     private String frontendUrl;
 
-    @Value("${spring.mail.username}")
-    private String fromEmail;
-
     public void sendVerificationEmail(User user, String otp) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(user.getEmail());
-            message.setSubject("Verify Your Email - " + appName);
-            message.setText(buildVerificationEmailContent(user, otp));
-
-            mailSender.send(message);
-            log.info("Verification email sent successfully to: {}", user.getEmail());
-        } catch (Exception e) {
-            log.error("Failed to send verification email to: {}", user.getEmail(), e);
-        }
+        enqueue(user.getEmail(), "Verify Your Email - " + appName, buildVerificationEmailContent(user, otp));
+        log.info("Verification email queued for: {}", user.getEmail());
     }
 
     public String generateOTP() {
@@ -49,32 +42,44 @@ public class EmailService {
     }
 
     public void sendWelcomeEmail(User user) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(user.getEmail());
-            message.setSubject("Welcome to " + appName + "!");
-            message.setText(buildWelcomeEmailContent(user));
-
-            mailSender.send(message);
-            log.info("Welcome email sent successfully to: {}", user.getEmail());
-        } catch (Exception e) {
-            log.error("Failed to send welcome email to: {}", user.getEmail(), e);
+        enqueue(user.getEmail(), "Welcome to " + appName + "!", buildWelcomeEmailContent(user));
+        log.info("Welcome email queued for: {}", user.getEmail());
+    }
+
+    // One JDBC batch instead of an insert per user; IDENTITY ids keep Hibernate from batching saveAll
+    public void sendWelcomeEmails(List<User> users) {
+        if (users.isEmpty()) {
+            return;
         }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String subject = "Welcome to " + appName + "!";
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO email_outbox (recipient, subject, body, status, attempts, next_attempt_at, created_at) " +
+                        "VALUES (?, ?, ?, 'PENDING', 0, ?, ?)",
+                users, users.size(), (ps, user) -> {
+                    ps.setString(1, user.getEmail());
+                    ps.setString(2, subject);
+                    ps.setString(3, buildWelcomeEmailContent(user));
+                    ps.setTimestamp(4, now);
+                    ps.setTimestamp(5, now);
+                });
+        log.info("Welcome emails queued for {} users", users.size());
     }
 
     public void sendPasswordResetEmail(User user, String resetToken) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(user.getEmail());
-            message.setSubject("Password Reset Request - " + appName);
-            message.setText(buildPasswordResetEmailContent(user, resetToken));
-
-            mailSender.send(message);
-            log.info("Password reset email sent successfully to: {}", user.getEmail());
-        } catch (Exception e) {
-            log.error("Failed to send password reset email to: {}", user.getEmail(), e);
+        enqueue(user.getEmail(), "Password Reset Request - " + appName, buildPasswordResetEmailContent(user, resetToken));
+        log.info("Password reset email queued for: {}", user.getEmail());
+    }
+
+    // Written in the caller's transaction; EmailOutboxDispatcher delivers it after commit
+    private void enqueue(String recipient, String subject, String body) {
+        try (var phase = RequestProfiler.phase("email.enqueue")) {
+            outboxRepository.save(EmailOutboxMessage.builder()
+                    .recipient(recipient)
+                    .subject(subject)
+                    .body(body)
+                    .nextAttemptAt(LocalDateTime.now())
+                    .build());
         }
     }
 
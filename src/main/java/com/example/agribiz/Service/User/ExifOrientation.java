@@ -0,0 +1,77 @@
+package com.example.agribiz.Service.User;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Reads the EXIF Orientation tag (1-8) from a JPEG's APP1 segment, which ImageIO decodes past without applying
+final class ExifOrientation {
+
+    static final int NORMAL = 1;
+
+    private static final int SOI = 0xFFD8;
+    private static final int EOI = 0xFFD9;
+    private static final int SOS = 0xFFDA;
+    private static final int APP1 = 0xFFE1;
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final byte[] EXIF = "Exif\0\0".getBytes(StandardCharsets.ISO_8859_1);
+
+    private ExifOrientation() {
+    }
+
+    // Walks the marker segments up to the start of scan; the entropy-coded data is never read
+    static int read(Path source) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source)))) {
+            if (in.readUnsignedShort() != SOI) {
+                return NORMAL;
+            }
+            while (true) {
+                int marker = in.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == SOS || marker == EOI) {
+                    return NORMAL;
+                }
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return NORMAL;
+                }
+                if (marker != APP1) {
+                    in.skipNBytes(length);
+                    continue;
+                }
+                byte[] segment = in.readNBytes(length);
+                if (segment.length >= EXIF.length && Arrays.equals(segment, 0, EXIF.length, EXIF, 0, EXIF.length)) {
+                    return fromTiff(ByteBuffer.wrap(segment, EXIF.length, segment.length - EXIF.length).slice());
+                }
+            }
+        } catch (EOFException e) {
+            // Truncated header: the decoder reports the damage itself
+            return NORMAL;
+        }
+    }
+
+    private static int fromTiff(ByteBuffer tiff) {
+        try {
+            tiff.order(tiff.getShort(0) == 0x4949 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            int ifd = tiff.getInt(4);
+            int entries = tiff.getShort(ifd) & 0xFFFF;
+            for (int i = 0; i < entries; i++) {
+                int entry = ifd + 2 + i * 12;
+                if ((tiff.getShort(entry) & 0xFFFF) == ORIENTATION_TAG) {
+                    int orientation = tiff.getShort(entry + 8) & 0xFFFF;
+                    return orientation >= 1 && orientation <= 8 ? orientation : NORMAL;
+                }
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            // Malformed EXIF is common from cheap cameras; treat it as absent
+        }
+        return NORMAL;
+    }
+}
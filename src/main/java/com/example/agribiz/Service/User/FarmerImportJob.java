@@ -0,0 +1,51 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Dto.Response.ImportRowError;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progress of one cooperative member import, updated by the import worker
+@Getter
+public class FarmerImportJob {
+
+    private final String id;
+    private final String fileName;
+    private final int maxReportedErrors;
+    @Setter
+    private volatile UploadStatus status = UploadStatus.QUEUED;
+    private final AtomicLong rowsProcessed = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong alreadyRegistered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final List<ImportRowError> errors = new ArrayList<>();
+    @Setter
+    private volatile String error;
+
+    public FarmerImportJob(String id, String fileName, int maxReportedErrors) {
+        this.id = id;
+        this.fileName = fileName;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    // Every failure is counted; only the first maxReportedErrors are kept so a garbage file can't exhaust memory
+    void rowFailed(long line, String email, String message) {
+        failed.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportRowError(line, email, message));
+            }
+        }
+    }
+
+    public List<ImportRowError> getErrors() {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+}
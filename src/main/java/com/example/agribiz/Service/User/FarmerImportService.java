@@ -0,0 +1,408 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Dto.Request.RegisterRequest;
+import com.example.agribiz.Dto.Response.FarmerImportResponse;
+import com.example.agribiz.Exception.FileUploadException;
+import com.example.agribiz.Exception.ServiceOverloadedException;
+import com.example.agribiz.Exception.UploadJobNotFoundException;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import com.example.agribiz.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Onboards cooperative member lists: streams the CSV, hashes in parallel and inserts a batch per statement
+@Service
+@Slf4j
+public class FarmerImportService {
+
+    // One statement per batch; RETURNING tells us exactly which rows lost a race with a concurrent sign-up
+    private static final String INSERT_BATCH = """
+            INSERT INTO users (first_name, last_name, email, password, is_verified, role, enabled,
+                               account_non_expired, account_non_locked, credentials_non_expired,
+                               credential_version, created_at, updated_at)
+            SELECT first_name, last_name, email, password, true, 'FARMER', true, true, true, true, 0,
+                   localtimestamp, localtimestamp
+            FROM unnest(?::text[], ?::text[], ?::text[], ?::text[]) AS member(first_name, last_name, email, password)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING email""";
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("firstname", "lastname", "email", "password");
+
+    private static final int MAX_HASH_ATTEMPTS = 5;
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailService emailService;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    private final boolean sendWelcomeEmail;
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService hashers;
+    private final Cache<String, FarmerImportJob> jobs;
+
+    public FarmerImportService(
+            UserRepository userRepository,
+            PasswordEncoder passwordEncoder,
+            Validator validator,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            EmailService emailService,
+            @Value("${app.import.batch-size:500}") int batchSize,
+            @Value("${app.import.hashing-parallelism:0}") int hashingParallelism,
+            @Value("${app.import.queue-capacity:2}") int queueCapacity,
+            @Value("${app.import.max-reported-errors:1000}") int maxReportedErrors,
+            @Value("${app.import.send-welcome-email:true}") boolean sendWelcomeEmail,
+            @Value("${app.import.job-retention:24h}") Duration jobRetention
+    ) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.validator = validator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.emailService = emailService;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.sendWelcomeEmail = sendWelcomeEmail;
+
+        // One import at a time per node; a second file waits in the queue
+        this.executor = new ThreadPoolExecutor(
+                1, 1,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "farmer-import");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        // Hashes still run on PasswordHashingExecutor; this only caps how many of its workers an import
+        // occupies, leaving the rest for logins and sign-ups
+        int parallelism = hashingParallelism > 0
+                ? hashingParallelism
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger hasherCount = new AtomicInteger();
+        this.hashers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "farmer-import-hash-" + hasherCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(jobRetention)
+                .maximumSize(1_000)
+                .build();
+    }
+
+    public FarmerImportResponse submit(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File is empty");
+        }
+
+        Path spooled;
+        try {
+            spooled = Files.createTempFile("farmer-import-", ".csv");
+        } catch (IOException e) {
+            throw new FileUploadException("Failed to receive import file", e);
+        }
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, spooled, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(spooled);
+            throw new FileUploadException("Failed to receive import file", e);
+        }
+
+        FarmerImportJob job = new FarmerImportJob(UUID.randomUUID().toString(), file.getOriginalFilename(),
+                maxReportedErrors);
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(() -> run(job, spooled));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.getId());
+            deleteQuietly(spooled);
+            throw new ServiceOverloadedException("Too many imports in progress. Please try again later.", e);
+        }
+
+        log.info("Queued farmer import {} from file: {}", job.getId(), file.getOriginalFilename());
+        return mapToResponse(job);
+    }
+
+    public FarmerImportResponse getImport(String jobId) {
+        FarmerImportJob job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new UploadJobNotFoundException("Import job not found: " + jobId);
+        }
+        return mapToResponse(job);
+    }
+
+    void run(FarmerImportJob job, Path spooled) {
+        job.setStatus(UploadStatus.PROCESSING);
+        long started = System.nanoTime();
+        try (CsvRecordReader csv = new CsvRecordReader(Files.newBufferedReader(spooled, StandardCharsets.UTF_8))) {
+            Map<String, Integer> columns = readHeader(csv.next());
+
+            // Emails already taken by an earlier row; the database can't tell duplicates within one batch apart
+            Set<String> seen = new HashSet<>();
+            List<MemberRow> batch = new ArrayList<>(batchSize);
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                job.getRowsProcessed().incrementAndGet();
+
+                MemberRow row = toRow(csv.recordLine(), record, columns);
+                String problem = validate(row);
+                if (problem == null && !seen.add(row.email())) {
+                    problem = "Email appears more than once in the file";
+                }
+                if (problem != null) {
+                    job.rowFailed(row.line(), row.email(), problem);
+                    continue;
+                }
+
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    importBatch(job, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatch(job, batch);
+            }
+
+            job.setStatus(UploadStatus.COMPLETED);
+            log.info("Farmer import {} completed in {}s: {} imported, {} already registered, {} failed",
+                    job.getId(), TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started),
+                    job.getImported().get(), job.getAlreadyRegistered().get(), job.getFailed().get());
+        } catch (IllegalArgumentException | IOException e) {
+            job.setError(e.getMessage());
+            job.setStatus(UploadStatus.FAILED);
+            log.warn("Farmer import {} rejected: {}", job.getId(), e.getMessage());
+        } catch (Exception e) {
+            job.setError("Import failed after " + job.getRowsProcessed().get() + " rows");
+            job.setStatus(UploadStatus.FAILED);
+            log.error("Farmer import {} failed", job.getId(), e);
+        } finally {
+            deleteQuietly(spooled);
+        }
+    }
+
+    private void importBatch(FarmerImportJob job, List<MemberRow> batch) {
+        Set<String> existing = new HashSet<>(userRepository.findExistingEmails(
+                batch.stream().map(MemberRow::email).toList()));
+        List<MemberRow> fresh = new ArrayList<>(batch.size());
+        for (MemberRow row : batch) {
+            if (existing.contains(row.email())) {
+                job.getAlreadyRegistered().incrementAndGet();
+            } else {
+                fresh.add(row);
+            }
+        }
+
+        // The batch is fully hashed before the next one is read, which bounds memory to one batch
+        List<CompletableFuture<String>> hashes = fresh.stream()
+                .map(row -> CompletableFuture.supplyAsync(() -> hash(row.password()), hashers))
+                .toList();
+        List<MemberRow> hashed = new ArrayList<>(fresh.size());
+        for (int i = 0; i < fresh.size(); i++) {
+            MemberRow row = fresh.get(i);
+            try {
+                hashed.add(row.withPassword(hashes.get(i).join()));
+            } catch (CompletionException e) {
+                job.rowFailed(row.line(), row.email(), "Could not hash password, import this row again later");
+                log.warn("Farmer import {} could not hash password on line {}: {}",
+                        job.getId(), row.line(), e.getCause().getMessage());
+            }
+        }
+        if (hashed.isEmpty()) {
+            return;
+        }
+
+        List<String> inserted = transactionTemplate.execute(status -> {
+            List<String> emails = jdbcTemplate.query(
+                    connection -> prepareInsert(connection, hashed),
+                    (rs, rowNum) -> rs.getString(1));
+            if (sendWelcomeEmail) {
+                Set<String> insertedEmails = new HashSet<>(emails);
+                emailService.sendWelcomeEmails(hashed.stream()
+                        .filter(row -> insertedEmails.contains(row.email()))
+                        .map(MemberRow::toUser)
+                        .toList());
+            }
+            return emails;
+        });
+
+        int insertedCount = inserted == null ? 0 : inserted.size();
+        job.getImported().addAndGet(insertedCount);
+        job.getAlreadyRegistered().addAndGet(hashed.size() - insertedCount);
+    }
+
+    // Backs off instead of failing the row when logins have the hashing pool's queue full
+    private String hash(String password) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return passwordEncoder.encode(password);
+            } catch (ServiceOverloadedException e) {
+                if (attempt == MAX_HASH_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(200L * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private String validate(MemberRow row) {
+        RegisterRequest request = RegisterRequest.builder()
+                .firstName(row.firstName())
+                .lastName(row.lastName())
+                .email(row.email())
+                .password(row.password())
+                .confirmPassword(row.password())
+                .role(Role.FARMER)
+                .build();
+        Set<ConstraintViolation<RegisterRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .reduce((a, b) -> a + "; " + b)
+                .orElse(null);
+    }
+
+    private static Map<String, Integer> readHeader(List<String> header) {
+        if (header == null) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        // first_name, First Name and firstName all name the same column
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).toLowerCase(Locale.ROOT).replaceAll("[^a-z]", ""), i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Missing required columns: " + String.join(", ", missing));
+        }
+        return columns;
+    }
+
+    private static MemberRow toRow(long line, List<String> record, Map<String, Integer> columns) {
+        return new MemberRow(line,
+                field(record, columns.get("firstname")),
+                field(record, columns.get("lastname")),
+                field(record, columns.get("email")),
+                // Passwords are taken verbatim; whitespace may be part of them
+                record.size() > columns.get("password") ? record.get(columns.get("password")) : null);
+    }
+
+    private static String field(List<String> record, int index) {
+        return index < record.size() ? record.get(index).trim() : null;
+    }
+
+    private static PreparedStatement prepareInsert(Connection connection, List<MemberRow> rows) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(INSERT_BATCH);
+        statement.setArray(1, textArray(connection, rows.stream().map(MemberRow::firstName).toList()));
+        statement.setArray(2, textArray(connection, rows.stream().map(MemberRow::lastName).toList()));
+        statement.setArray(3, textArray(connection, rows.stream().map(MemberRow::email).toList()));
+        statement.setArray(4, textArray(connection, rows.stream().map(MemberRow::password).toList()));
+        return statement;
+    }
+
+    private static Array textArray(Connection connection, List<String> values) throws SQLException {
+        return connection.createArrayOf("text", values.toArray());
+    }
+
+    private static FarmerImportResponse mapToResponse(FarmerImportJob job) {
+        return FarmerImportResponse.builder()
+                .jobId(job.getId())
+                .fileName(job.getFileName())
+                .status(job.getStatus())
+                .rowsProcessed(job.getRowsProcessed().get())
+                .imported(job.getImported().get())
+                .alreadyRegistered(job.getAlreadyRegistered().get())
+                .failed(job.getFailed().get())
+                .errors(job.getErrors())
+                .error(job.getError())
+                .build();
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete import file {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        hashers.shutdownNow();
+    }
+
+    private record MemberRow(long line, String firstName, String lastName, String email, String password) {
+
+        MemberRow withPassword(String encoded) {
+            return new MemberRow(line, firstName, lastName, email, encoded);
+        }
+
+        User toUser() {
+            return User.builder()
+                    .firstName(firstName)
+                    .lastName(lastName)
+                    .email(email)
+                    .role(Role.FARMER)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.agribiz.Service.User;
+
+import java.nio.file.Path;
+
+public record ImageRendition(RenditionSize size, Path file, long bytes) {
+}
@@ -0,0 +1,204 @@
+package com.example.agribiz.Service.User;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Decodes, centre-crops and re-encodes profile images locally so only the small renditions leave the node
+@Service
+@Slf4j
+public class ImageRenditionService {
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final MeterRegistry meterRegistry;
+    private final long maxPixels;
+    private final float jpegQuality;
+    private final Semaphore decodeBudgetKb;
+    private final int decodeBudgetTotalKb;
+
+    public ImageRenditionService(
+            MeterRegistry meterRegistry,
+            @Value("${app.media.rendition.max-pixels:40000000}") long maxPixels,
+            @Value("${app.media.rendition.jpeg-quality:0.85}") float jpegQuality,
+            @Value("${app.media.rendition.decode-memory-budget:256MB}") DataSize decodeMemoryBudget
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+        this.decodeBudgetTotalKb = (int) decodeMemoryBudget.toKilobytes();
+        // Concurrent decodes share a memory budget instead of a fixed count, so one huge photo waits for room
+        this.decodeBudgetKb = new Semaphore(decodeBudgetTotalKb, true);
+    }
+
+    public List<ImageRendition> render(Path source) throws IOException {
+        long start = System.nanoTime();
+        BufferedImage square = decodeSquare(source, RenditionSize.AVATAR.getPixels());
+
+        List<ImageRendition> renditions = new ArrayList<>();
+        try {
+            for (RenditionSize size : RenditionSize.values()) {
+                renditions.add(encode(square, size));
+            }
+        } catch (IOException | RuntimeException e) {
+            renditions.forEach(rendition -> deleteQuietly(rendition.file()));
+            throw e;
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        Timer.builder("agribiz.media.rendition")
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("Rendered {} ({} bytes) into {} in {} ms", source.getFileName(), Files.size(source),
+                renditions.stream().map(r -> r.size() + "=" + r.bytes() + "B").toList(), elapsedNanos / 1_000_000);
+        return renditions;
+    }
+
+    // Reads only the header first, then decodes with subsampling so big photos never land on the heap at full size
+    private BufferedImage decodeSquare(Path source, int largestTarget) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // The JDK 21 decoder converts CMYK and YCCK JPEGs itself; only the EXIF orientation is left to us
+                int orientation = reader.getFormatName().equalsIgnoreCase("jpeg")
+                        ? ExifOrientation.read(source)
+                        : ExifOrientation.NORMAL;
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalArgumentException("Image dimensions are too large");
+                }
+
+                int side = Math.min(width, height);
+                int subsampling = Math.max(1, side / (largestTarget * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                param.setSourceRegion(new Rectangle((width - side) / 2, (height - side) / 2, side, side));
+
+                long decodedSide = (side + subsampling - 1) / subsampling;
+                int neededKb = (int) Math.min(decodeBudgetTotalKb,
+                        Math.max(1, decodedSide * decodedSide * BYTES_PER_PIXEL / 1024));
+                decodeBudgetKb.acquireUninterruptibly(neededKb);
+                try {
+                    // The crop is centred and square, so orienting it afterwards matches cropping the oriented photo
+                    return orient(reader.read(0, param), orientation);
+                } finally {
+                    decodeBudgetKb.release(neededKb);
+                }
+            } catch (IIOException e) {
+                // A format ImageIO recognised but cannot decode is the client's file, not our failure
+                throw new IllegalArgumentException("Image could not be decoded", e);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // EXIF orientations 2-8: mirror and/or rotate so the image displays the way the camera was held
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, w);
+            default -> null;
+        };
+        if (transform == null) {
+            return image;
+        }
+        boolean swapped = orientation >= 5;
+        BufferedImage oriented = new BufferedImage(swapped ? h : w, swapped ? w : h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = oriented.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+
+    private ImageRendition encode(BufferedImage square, RenditionSize size) throws IOException {
+        int pixels = size.getPixels();
+        BufferedImage scaled = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            // JPEG has no alpha, so transparent PNG/GIF areas become white rather than black
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, pixels, pixels);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(square, 0, 0, pixels, pixels, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Path output = Files.createTempFile("profile-" + size.name().toLowerCase() + "-", ".jpg");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(output.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(scaled, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(output);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+
+        long bytes = Files.size(output);
+        DistributionSummary.builder("agribiz.media.rendition.bytes")
+                .baseUnit("bytes")
+                .tag("size", size.name().toLowerCase())
+                .register(meterRegistry)
+                .record(bytes);
+        return new ImageRendition(size, output, bytes);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary image {}: {}", path, e.getMessage());
+        }
+    }
+}
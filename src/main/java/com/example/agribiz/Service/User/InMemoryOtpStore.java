@@ -0,0 +1,166 @@
+package com.example.agribiz.Service.User;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Single-node OTP store: a capped map whose entries are expired by a hashed timer wheel
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class InMemoryOtpStore implements OtpStore {
+
+    private final Clock clock;
+    private final long maxEntries;
+    private final long tickMillis;
+    private final Queue<Timeout>[] wheel;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile long lastTick;
+
+    @Autowired
+    public InMemoryOtpStore(
+            @Value("${app.otp.memory.max-entries:100000}") long maxEntries,
+            @Value("${app.otp.memory.tick-millis:1000}") long tickMillis,
+            @Value("${app.otp.memory.wheel-size:1024}") int wheelSize
+    ) {
+        this(Clock.systemUTC(), maxEntries, tickMillis, wheelSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    InMemoryOtpStore(Clock clock, long maxEntries, long tickMillis, int wheelSize) {
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        this.tickMillis = tickMillis;
+        this.wheel = new Queue[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = clock.millis() / tickMillis;
+    }
+
+    @Override
+    public void save(String email, byte[] otpHash, Instant expiresAt) {
+        // Replacing an existing code never grows the map, so only brand-new keys count against the cap
+        if (entries.mappingCount() >= maxEntries && !entries.containsKey(email)) {
+            log.warn("OTP store is full ({} pending), rejecting code for: {}", maxEntries, email);
+            throw new IllegalStateException("Too many pending verifications. Please try again later.");
+        }
+
+        Entry entry = new Entry(otpHash, expiresAt.toEpochMilli());
+        entries.put(email, entry);
+        schedule(email, entry);
+    }
+
+    @Override
+    public OtpVerificationResult verify(String email, byte[] otpHash, int maxAttempts) {
+        Entry entry = entries.get(email);
+        if (entry == null) {
+            return OtpVerificationResult.NOT_FOUND;
+        }
+
+        if (clock.millis() >= entry.expiresAtMillis) {
+            entries.remove(email, entry);
+            return OtpVerificationResult.EXPIRED;
+        }
+
+        int attempt = entry.attempts.incrementAndGet();
+        if (attempt > maxAttempts) {
+            entries.remove(email, entry);
+            return OtpVerificationResult.TOO_MANY_ATTEMPTS;
+        }
+
+        if (MessageDigest.isEqual(entry.otpHash, otpHash)) {
+            // Only one concurrent caller can win the remove, so a code is accepted at most once
+            return entries.remove(email, entry) ? OtpVerificationResult.VERIFIED : OtpVerificationResult.NOT_FOUND;
+        }
+
+        if (attempt == maxAttempts) {
+            entries.remove(email, entry);
+        }
+        return OtpVerificationResult.INVALID;
+    }
+
+    @Override
+    public void remove(String email) {
+        entries.remove(email);
+    }
+
+    @Override
+    public long size() {
+        return entries.mappingCount();
+    }
+
+    // Timeouts still waiting on the wheel, replaced codes included
+    long scheduledTimeouts() {
+        long scheduled = 0;
+        for (Queue<Timeout> slot : wheel) {
+            scheduled += slot.size();
+        }
+        return scheduled;
+    }
+
+    @Scheduled(fixedRateString = "${app.otp.memory.tick-millis:1000}")
+    public void tick() {
+        advance(clock.millis());
+    }
+
+    synchronized void advance(long nowMillis) {
+        long currentTick = nowMillis / tickMillis;
+        // Bound the work to one full turn; anything older than that sits in a slot we visit anyway
+        long firstTick = Math.max(lastTick + 1, currentTick - wheel.length + 1);
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            expireSlot(wheel[(int) (tick % wheel.length)], nowMillis);
+        }
+        lastTick = Math.max(lastTick, currentTick);
+    }
+
+    private void expireSlot(Queue<Timeout> slot, long nowMillis) {
+        int pending = slot.size();
+        for (int i = 0; i < pending; i++) {
+            Timeout timeout = slot.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.entry.expiresAtMillis <= nowMillis) {
+                // A newer code for the same email has its own timeout and is left alone
+                entries.remove(timeout.email, timeout.entry);
+            } else if (entries.get(timeout.email) == timeout.entry) {
+                // Expiry lies more than one wheel turn ahead, so wait for the next pass
+                slot.offer(timeout);
+            }
+        }
+    }
+
+    private void schedule(String email, Entry entry) {
+        // Round up so the slot is only visited once the entry has actually expired
+        long expiryTick = (entry.expiresAtMillis + tickMillis - 1) / tickMillis;
+        long tick = Math.max(expiryTick, lastTick + 1);
+        wheel[(int) (tick % wheel.length)].offer(new Timeout(email, entry));
+    }
+
+    private static final class Entry {
+        private final byte[] otpHash;
+        private final long expiresAtMillis;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private Entry(byte[] otpHash, long expiresAtMillis) {
+            this.otpHash = otpHash;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private record Timeout(String email, Entry entry) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.agribiz.Service.User;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+import java.util.regex.Pattern;
+
+// Keeps images on local disk for dev, test and self-hosted installs; served by MediaController
+@Service
+@ConditionalOnProperty(name = "app.media.store", havingValue = "local")
+@Slf4j
+public class LocalDiskMediaStore implements MediaStore {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9-]{1,64}\\.[a-z]{2,5}");
+
+    @Value("${app.media.local.root:media}")
+    private Path root;
+
+    @Value("${app.media.local.base-url:/api/v1/public/media}")
+    private String baseUrl;
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Files.createDirectories(root).toAbsolutePath().normalize();
+        log.info("Storing media on local disk under {}", root);
+    }
+
+    @Override
+    public StoredImage store(Path file, LongConsumer progress) throws IOException {
+        String key = UUID.randomUUID() + extensionOf(file);
+
+        // Write under a temporary name and rename, so readers never see a partial file
+        Path target = root.resolve(key);
+        Path temp = Files.createTempFile(root, ".incoming-", ".tmp");
+        try {
+            Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        progress.accept(Files.size(target));
+
+        log.info("Stored image on local disk: {}", key);
+        return new StoredImage(baseUrl + "/" + key, key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Optional<Path> path = resolve(key);
+        if (path.isPresent()) {
+            Files.deleteIfExists(path.get());
+            log.info("Deleted image from local disk: {}", key);
+        }
+    }
+
+    // Empty for anything that isn't a key we could have issued, which also rules out path traversal
+    public Optional<Path> resolve(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(root.resolve(key));
+    }
+
+    private static String extensionOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? ".bin" : name.substring(dot).toLowerCase();
+    }
+}
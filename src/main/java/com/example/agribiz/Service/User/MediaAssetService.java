@@ -0,0 +1,96 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Model.MediaAsset;
+import com.example.agribiz.Repository.MediaAssetRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Content-addressed index of stored images, so repeated uploads reuse the existing asset
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MediaAssetService {
+
+    private final MediaAssetRepository mediaAssetRepository;
+    private final MediaStore mediaStore;
+
+    @Transactional(readOnly = true)
+    public Map<RenditionSize, MediaAsset> findRenditions(String digest) {
+        Map<RenditionSize, MediaAsset> assets = new EnumMap<>(RenditionSize.class);
+        mediaAssetRepository.findByDigest(digest).forEach(asset -> assets.put(asset.getVariant(), asset));
+        return assets;
+    }
+
+    // Records a fresh upload with its first reference already taken, so it is never visible unreferenced.
+    // Must join the transaction that stores the reference: if that rolls back, the row goes and so does the upload.
+    // Empty means a concurrent upload of the same content won and its asset was deleted before we could reference it.
+    @Transactional
+    public Optional<MediaAsset> register(String digest, RenditionSize variant, StoredImage stored, long sizeBytes) {
+        boolean inserted = mediaAssetRepository.insertIfAbsent(
+                digest, variant.name(), stored.url(), stored.publicId(), sizeBytes, Instant.now()) == 1;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (!inserted || status != STATUS_COMMITTED) {
+                    deleteRemote(stored.publicId());
+                }
+            }
+        });
+        if (inserted) {
+            return mediaAssetRepository.findByDigestAndVariant(digest, variant);
+        }
+
+        log.info("Duplicate upload of {} {} raced another upload, discarding {}", digest, variant, stored.publicId());
+        return mediaAssetRepository.findByDigestAndVariant(digest, variant).filter(this::acquire);
+    }
+
+    // Must join the transaction that stores the reference; false means the asset was just deleted
+    @Transactional
+    public boolean acquire(MediaAsset asset) {
+        return mediaAssetRepository.incrementRefCount(asset.getDigest(), asset.getVariant()) == 1;
+    }
+
+    // The remote image is only deleted once no user references it any more
+    @Transactional
+    public void release(String url) {
+        if (url == null) {
+            return;
+        }
+        // URLs stored before the index existed aren't tracked, so they are never deleted here
+        mediaAssetRepository.findByUrlForUpdate(url).ifPresent(asset -> {
+            asset.setRefCount(asset.getRefCount() - 1);
+            if (asset.getRefCount() > 0) {
+                return;
+            }
+            mediaAssetRepository.delete(asset);
+            deleteRemoteAfterCommit(asset.getPublicId());
+        });
+    }
+
+    private void deleteRemoteAfterCommit(String publicId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteRemote(publicId);
+            }
+        });
+    }
+
+    private void deleteRemote(String publicId) {
+        try {
+            mediaStore.delete(publicId);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete unreferenced image {}: {}", publicId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.agribiz.Service.User;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.LongConsumer;
+
+// Where rendered images end up; selected with app.media.store (cloudinary or local)
+public interface MediaStore {
+
+    // progress receives the number of bytes stored so far
+    StoredImage store(Path file, LongConsumer progress) throws IOException;
+
+    void delete(String key) throws IOException;
+}
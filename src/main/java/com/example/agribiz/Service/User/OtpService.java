@@ -1,11 +1,18 @@
 package com.example.agribiz.Service.User;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.concurrent.ConcurrentHashMap;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 
 @Service
 @RequiredArgsConstructor
@@ -13,18 +20,27 @@ import java.util.concurrent.ConcurrentHashMap;
 public class OtpService {
 
     private final EmailService emailService;
+    private final OtpStore otpStore;
+    private final MeterRegistry meterRegistry;
 
-    // In-memory storage for OTPs (consider using Redis for production)
-    private final ConcurrentHashMap<String, OtpData> otpStorage = new ConcurrentHashMap<>();
+    private static final Duration OTP_EXPIRY = Duration.ofMinutes(10);
 
-    private static final int OTP_EXPIRY_MINUTES = 10;
+    @Value("${app.otp.max-attempts:5}")
+    private int maxAttempts;
+
+    // Read on each scrape; for the Postgres store that is a count over the (small) pending_otps table
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("agribiz.otp.pending", otpStore, OtpStore::size)
+                .description("Verification codes issued and not yet used or expired")
+                .register(meterRegistry);
+    }
 
     public void generateAndSendOtp(String email, String userFullName) {
         String otp = emailService.generateOTP();
-        LocalDateTime expiryTime = LocalDateTime.now().plusMinutes(OTP_EXPIRY_MINUTES);
 
-        // Store OTP with expiry time
-        otpStorage.put(email, new OtpData(otp, expiryTime));
+        // Store only a hash of the OTP with its expiry time
+        otpStore.save(email, hash(email, otp), Instant.now().plus(OTP_EXPIRY));
 
         log.info("Generated OTP for email: {}", email);
 
@@ -40,57 +56,32 @@ public class OtpService {
     }
 
     public boolean verifyOtp(String email, String providedOtp) {
-        OtpData otpData = otpStorage.get(email);
-
-        if (otpData == null) {
-            log.warn("No OTP found for email: {}", email);
-            return false;
-        }
-
-        if (LocalDateTime.now().isAfter(otpData.getExpiryTime())) {
-            log.warn("OTP expired for email: {}", email);
-            otpStorage.remove(email); // Clean up expired OTP
-            return false;
-        }
-
-        if (otpData.getOtp().equals(providedOtp)) {
-            log.info("OTP verified successfully for email: {}", email);
-            otpStorage.remove(email); // Clean up used OTP
-            return true;
+        OtpVerificationResult result = otpStore.verify(email, hash(email, providedOtp), maxAttempts);
+
+        switch (result) {
+            case VERIFIED -> log.info("OTP verified successfully for email: {}", email);
+            case NOT_FOUND -> log.warn("No OTP found for email: {}", email);
+            case EXPIRED -> log.warn("OTP expired for email: {}", email);
+            case TOO_MANY_ATTEMPTS -> log.warn("Too many OTP attempts for email: {}", email);
+            case INVALID -> log.warn("Invalid OTP provided for email: {}", email);
         }
-
-        log.warn("Invalid OTP provided for email: {}", email);
-        return false;
+        return result == OtpVerificationResult.VERIFIED;
     }
 
     public void resendOtp(String email, String userFullName) {
         // Remove existing OTP if any
-        otpStorage.remove(email);
+        otpStore.remove(email);
         // Generate and send new OTP
         generateAndSendOtp(email, userFullName);
     }
 
-    public void cleanupExpiredOtps() {
-        LocalDateTime now = LocalDateTime.now();
-        otpStorage.entrySet().removeIf(entry -> now.isAfter(entry.getValue().getExpiryTime()));
-    }
-
-    // Inner class to store OTP data
-    private static class OtpData {
-        private final String otp;
-        private final LocalDateTime expiryTime;
-
-        public OtpData(String otp, LocalDateTime expiryTime) {
-            this.otp = otp;
-            this.expiryTime = expiryTime;
-        }
-
-        public String getOtp() {
-            return otp;
-        }
-
-        public LocalDateTime getExpiryTime() {
-            return expiryTime;
+    // Salted with the email so equal codes for different users hash differently
+    private static byte[] hash(String email, String otp) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return sha256.digest((email + ":" + otp).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
@@ -0,0 +1,15 @@
+package com.example.agribiz.Service.User;
+
+import java.time.Instant;
+
+// Holds pending email-verification codes; codes are only ever stored as hashes
+public interface OtpStore {
+
+    void save(String email, byte[] otpHash, Instant expiresAt);
+
+    OtpVerificationResult verify(String email, byte[] otpHash, int maxAttempts);
+
+    void remove(String email);
+
+    long size();
+}
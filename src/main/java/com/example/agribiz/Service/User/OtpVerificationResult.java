@@ -0,0 +1,9 @@
+package com.example.agribiz.Service.User;
+
+public enum OtpVerificationResult {
+    VERIFIED,
+    INVALID,
+    EXPIRED,
+    NOT_FOUND,
+    TOO_MANY_ATTEMPTS
+}
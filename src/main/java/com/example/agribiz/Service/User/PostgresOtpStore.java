@@ -0,0 +1,94 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Model.PendingOtp;
+import com.example.agribiz.Repository.BatchedDelete;
+import com.example.agribiz.Repository.PendingOtpRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Optional;
+
+// Shared OTP store so /verify-email works no matter which node handled /register
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "postgres")
+@RequiredArgsConstructor
+@Slf4j
+public class PostgresOtpStore implements OtpStore {
+
+    private final PendingOtpRepository pendingOtpRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.otp.postgres.purge-batch-size:1000}")
+    private int purgeBatchSize;
+
+    @Override
+    @Transactional
+    public void save(String email, byte[] otpHash, Instant expiresAt) {
+        pendingOtpRepository.upsert(email, otpHash, expiresAt);
+    }
+
+    // Joins the caller's transaction, so a code is only consumed if the verification it unlocks commits.
+    // Callers that reject a wrong code by throwing must not roll back, or the failed attempt is forgotten.
+    @Override
+    @Transactional
+    public OtpVerificationResult verify(String email, byte[] otpHash, int maxAttempts) {
+        Optional<PendingOtp> found = pendingOtpRepository.findForUpdate(email);
+        if (found.isEmpty()) {
+            return OtpVerificationResult.NOT_FOUND;
+        }
+
+        PendingOtp pendingOtp = found.get();
+        if (!Instant.now().isBefore(pendingOtp.getExpiresAt())) {
+            pendingOtpRepository.delete(pendingOtp);
+            return OtpVerificationResult.EXPIRED;
+        }
+
+        int attempt = pendingOtp.getAttempts() + 1;
+        if (attempt > maxAttempts) {
+            pendingOtpRepository.delete(pendingOtp);
+            return OtpVerificationResult.TOO_MANY_ATTEMPTS;
+        }
+
+        if (MessageDigest.isEqual(pendingOtp.getOtpHash(), otpHash)) {
+            pendingOtpRepository.delete(pendingOtp);
+            return OtpVerificationResult.VERIFIED;
+        }
+
+        if (attempt == maxAttempts) {
+            pendingOtpRepository.delete(pendingOtp);
+        } else {
+            pendingOtp.setAttempts(attempt);
+        }
+        return OtpVerificationResult.INVALID;
+    }
+
+    @Override
+    @Transactional
+    public void remove(String email) {
+        pendingOtpRepository.deleteById(email);
+    }
+
+    @Override
+    public long size() {
+        return pendingOtpRepository.count();
+    }
+
+    @Scheduled(fixedDelayString = "${app.otp.postgres.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        long purged = BatchedDelete.deleteAll(transactionTemplate, purgeBatchSize,
+                batchSize -> pendingOtpRepository.deleteExpiredBatch(now, batchSize));
+
+        if (purged > 0) {
+            log.info("Purged {} expired OTPs", purged);
+        }
+    }
+}
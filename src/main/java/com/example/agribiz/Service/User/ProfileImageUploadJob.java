@@ -0,0 +1,31 @@
+package com.example.agribiz.Service.User;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Progress of one asynchronous profile-image upload, updated by the upload worker
+@Getter
+public class ProfileImageUploadJob {
+
+    private final String id;
+    private final String ownerEmail;
+    @Setter
+    private volatile UploadStatus status = UploadStatus.QUEUED;
+    // Starts as the original's size and becomes the renditions' combined size once they are encoded
+    @Setter
+    private volatile long totalBytes;
+    @Setter
+    private volatile long bytesUploaded;
+    @Setter
+    private volatile String imageUrl;
+    @Setter
+    private volatile String thumbnailUrl;
+    @Setter
+    private volatile String error;
+
+    public ProfileImageUploadJob(String id, String ownerEmail, long totalBytes) {
+        this.id = id;
+        this.ownerEmail = ownerEmail;
+        this.totalBytes = totalBytes;
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Exception.FileUploadException;
+import com.example.agribiz.Exception.ServiceOverloadedException;
+import com.example.agribiz.Exception.UploadJobNotFoundException;
+import com.example.agribiz.Model.MediaAsset;
+import com.example.agribiz.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Accepts profile images on the request thread, then uploads them in the background
+@Service
+@Slf4j
+public class ProfileImageUploadService {
+
+    private final MediaStore mediaStore;
+    private final ImageRenditionService imageRenditionService;
+    private final MediaAssetService mediaAssetService;
+    private final UserRepository userRepository;
+    private final UserCacheInvalidator userCacheInvalidator;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, ProfileImageUploadJob> jobs;
+
+    public ProfileImageUploadService(
+            MediaStore mediaStore,
+            ImageRenditionService imageRenditionService,
+            MediaAssetService mediaAssetService,
+            UserRepository userRepository,
+            UserCacheInvalidator userCacheInvalidator,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.media.upload.concurrency:8}") int concurrency,
+            @Value("${app.media.upload.queue-capacity:100}") int queueCapacity,
+            @Value("${app.media.upload.job-retention:1h}") Duration jobRetention
+    ) {
+        this.mediaStore = mediaStore;
+        this.imageRenditionService = imageRenditionService;
+        this.mediaAssetService = mediaAssetService;
+        this.userRepository = userRepository;
+        this.userCacheInvalidator = userCacheInvalidator;
+        this.transactionTemplate = transactionTemplate;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                concurrency, concurrency,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "profile-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(jobRetention)
+                .maximumSize(10_000)
+                .build();
+    }
+
+    public ProfileImageUploadJob submit(String userEmail, MultipartFile file) {
+        validateFile(file);
+
+        // Hash while copying to our own file, so deduplication costs no extra pass over the bytes
+        Path spooled;
+        try {
+            spooled = Files.createTempFile("profile-upload-", ".img");
+        } catch (IOException e) {
+            throw new FileUploadException("Failed to receive image", e);
+        }
+
+        String digest;
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(file.getInputStream(), sha256)) {
+                Files.copy(in, spooled, StandardCopyOption.REPLACE_EXISTING);
+            }
+            digest = HexFormat.of().formatHex(sha256.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            deleteQuietly(spooled);
+            throw new FileUploadException("Failed to receive image", e);
+        }
+
+        ProfileImageUploadJob job = new ProfileImageUploadJob(UUID.randomUUID().toString(), userEmail, file.getSize());
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(() -> upload(job, spooled, digest));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.getId());
+            deleteQuietly(spooled);
+            throw new ServiceOverloadedException("Too many uploads in progress. Please try again shortly.", e);
+        }
+
+        log.info("Queued profile image upload {} for user: {}", job.getId(), userEmail);
+        return job;
+    }
+
+    public ProfileImageUploadJob getJob(String userEmail, String jobId) {
+        ProfileImageUploadJob job = jobs.getIfPresent(jobId);
+        if (job == null || !job.getOwnerEmail().equals(userEmail)) {
+            throw new UploadJobNotFoundException("Upload job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void upload(ProfileImageUploadJob job, Path spooled, String digest) {
+        job.setStatus(UploadStatus.PROCESSING);
+        List<ImageRendition> renditions = List.of();
+        try {
+            Map<RenditionSize, String> urls = null;
+            // A second pass only happens when a reused asset was deleted between lookup and reference
+            for (int attempt = 0; attempt < 2 && urls == null; attempt++) {
+                Map<RenditionSize, MediaAsset> existing = mediaAssetService.findRenditions(digest);
+                Map<ImageRendition, StoredImage> uploaded = Map.of();
+                if (existing.size() < RenditionSize.values().length) {
+                    if (renditions.isEmpty()) {
+                        // Decode and shrink on this worker so only the small JPEGs cross the network
+                        renditions = imageRenditionService.render(spooled);
+                    }
+                    uploaded = uploadMissing(job, renditions, existing);
+                } else {
+                    log.info("Profile image upload {} reuses stored content {}", job.getId(), digest);
+                    job.setTotalBytes(0);
+                }
+
+                Map<ImageRendition, StoredImage> fresh = uploaded;
+                // Short transaction of its own; nothing was held open while the upload ran
+                urls = transactionTemplate.execute(status -> {
+                    Map<RenditionSize, String> applied = applyProfileImage(job.getOwnerEmail(), digest, existing, fresh);
+                    if (applied == null) {
+                        status.setRollbackOnly();
+                    }
+                    return applied;
+                });
+            }
+            if (urls == null) {
+                throw new IllegalStateException("Stored image was removed concurrently: " + digest);
+            }
+
+            job.setImageUrl(urls.get(RenditionSize.AVATAR));
+            job.setThumbnailUrl(urls.get(RenditionSize.THUMBNAIL));
+            job.setBytesUploaded(job.getTotalBytes());
+            job.setStatus(UploadStatus.COMPLETED);
+            log.info("Profile image upload {} completed for user: {}", job.getId(), job.getOwnerEmail());
+        } catch (IllegalArgumentException e) {
+            job.setError(e.getMessage());
+            job.setStatus(UploadStatus.FAILED);
+            log.warn("Profile image upload {} rejected for user {}: {}", job.getId(), job.getOwnerEmail(), e.getMessage());
+        } catch (Exception e) {
+            job.setError("Failed to upload image");
+            job.setStatus(UploadStatus.FAILED);
+            log.error("Profile image upload {} failed for user: {}", job.getId(), job.getOwnerEmail(), e);
+        } finally {
+            deleteQuietly(spooled);
+            renditions.forEach(rendition -> deleteQuietly(rendition.file()));
+        }
+    }
+
+    private Map<ImageRendition, StoredImage> uploadMissing(ProfileImageUploadJob job, List<ImageRendition> renditions,
+                                                           Map<RenditionSize, MediaAsset> existing) throws IOException {
+        List<ImageRendition> missing = renditions.stream()
+                .filter(rendition -> !existing.containsKey(rendition.size()))
+                .toList();
+        job.setTotalBytes(missing.stream().mapToLong(ImageRendition::bytes).sum());
+        job.setBytesUploaded(0);
+        job.setStatus(UploadStatus.UPLOADING);
+
+        Map<ImageRendition, StoredImage> uploaded = new LinkedHashMap<>();
+        long uploadedBefore = 0;
+        try {
+            for (ImageRendition rendition : missing) {
+                long offset = uploadedBefore;
+                uploaded.put(rendition, mediaStore.store(rendition.file(),
+                        bytes -> job.setBytesUploaded(offset + bytes)));
+                uploadedBefore += rendition.bytes();
+            }
+        } catch (IOException | RuntimeException e) {
+            uploaded.values().forEach(this::discardQuietly);
+            throw e;
+        }
+        return uploaded;
+    }
+
+    // Null means a reused asset vanished and the caller must roll back and retry
+    private Map<RenditionSize, String> applyProfileImage(String userEmail, String digest,
+                                                         Map<RenditionSize, MediaAsset> existing,
+                                                         Map<ImageRendition, StoredImage> uploaded) {
+        // Fresh uploads are registered first, so a rollback anywhere below also discards their stored images
+        Map<RenditionSize, MediaAsset> assets = new EnumMap<>(RenditionSize.class);
+        boolean complete = true;
+        for (Map.Entry<ImageRendition, StoredImage> entry : uploaded.entrySet()) {
+            ImageRendition rendition = entry.getKey();
+            Optional<MediaAsset> asset = mediaAssetService.register(digest, rendition.size(), entry.getValue(),
+                    rendition.bytes());
+            asset.ifPresent(registered -> assets.put(rendition.size(), registered));
+            complete &= asset.isPresent();
+        }
+
+        // Take the new references before dropping the old ones, so re-uploading the current image is a no-op
+        for (MediaAsset asset : existing.values()) {
+            complete = complete && mediaAssetService.acquire(asset);
+            assets.put(asset.getVariant(), asset);
+        }
+        if (!complete) {
+            return null;
+        }
+
+        var user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new IllegalStateException("User disappeared during upload: " + userEmail));
+        mediaAssetService.release(user.getProfileImageUrl());
+        mediaAssetService.release(user.getProfileThumbnailUrl());
+
+        user.setProfileImageUrl(assets.get(RenditionSize.AVATAR).getUrl());
+        user.setProfileThumbnailUrl(assets.get(RenditionSize.THUMBNAIL).getUrl());
+        userRepository.save(user);
+        userCacheInvalidator.invalidate(user);
+
+        Map<RenditionSize, String> urls = new EnumMap<>(RenditionSize.class);
+        assets.forEach((size, asset) -> urls.put(size, asset.getUrl()));
+        return urls;
+    }
+
+    private void validateFile(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File is empty");
+        }
+
+        String contentType = file.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new IllegalArgumentException("File must be an image");
+        }
+
+        // Check file size (5MB limit)
+        long maxSize = 5 * 1024 * 1024; // 5MB
+        if (file.getSize() > maxSize) {
+            throw new IllegalArgumentException("File size must be less than 5MB");
+        }
+
+        // Check allowed image types
+        if (!isAllowedImageType(contentType)) {
+            throw new IllegalArgumentException("Only JPEG, PNG, and GIF images are allowed");
+        }
+    }
+
+    private boolean isAllowedImageType(String contentType) {
+        return contentType.equals("image/jpeg") ||
+                contentType.equals("image/png") ||
+                contentType.equals("image/gif") ||
+                contentType.equals("image/jpg");
+    }
+
+    private void discardQuietly(StoredImage stored) {
+        try {
+            mediaStore.delete(stored.publicId());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not delete partially uploaded image {}: {}", stored.publicId(), e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
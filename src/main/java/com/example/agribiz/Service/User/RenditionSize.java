@@ -0,0 +1,17 @@
+package com.example.agribiz.Service.User;
+
+// Square renditions produced locally before anything is uploaded
+public enum RenditionSize {
+    AVATAR(400),
+    THUMBNAIL(100);
+
+    private final int pixels;
+
+    RenditionSize(int pixels) {
+        this.pixels = pixels;
+    }
+
+    public int getPixels() {
+        return pixels;
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.agribiz.Service.User;
+
+public record StoredImage(String url, String publicId) {
+}
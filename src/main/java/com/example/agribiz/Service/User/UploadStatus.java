@@ -0,0 +1,9 @@
+package com.example.agribiz.Service.User;
+
+public enum UploadStatus {
+    QUEUED,
+    PROCESSING,
+    UPLOADING,
+    COMPLETED,
+    FAILED
+}
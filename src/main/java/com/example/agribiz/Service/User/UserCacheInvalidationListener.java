@@ -0,0 +1,96 @@
+package com.example.agribiz.Service.User;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Listens for user cache invalidations published by other nodes via Postgres LISTEN/NOTIFY
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserCacheInvalidationListener implements SmartLifecycle {
+
+    private final DataSource dataSource;
+    private final UserCacheInvalidator invalidator;
+
+    @Value("${app.user-cache.cluster-invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.user-cache.cluster-invalidation.poll-timeout-ms:5000}")
+    private int pollTimeoutMs;
+
+    @Value("${app.user-cache.cluster-invalidation.reconnect-delay-ms:5000}")
+    private long reconnectDelayMs;
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @Override
+    public void start() {
+        if (!enabled || !invalidator.isPostgres()) {
+            log.info("Cluster user cache invalidation disabled");
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "user-cache-invalidation");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + UserCacheInvalidator.CHANNEL);
+                }
+                // Anything published while we were disconnected was missed, so start clean
+                invalidator.evictAllLocal();
+                log.info("Listening for user cache invalidations on channel: {}", UserCacheInvalidator.CHANNEL);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        invalidator.onNotification(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("User cache invalidation listener lost its connection: {}", e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.ReplicaRoutingProperties;
+import com.example.agribiz.Model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Evicts cached user state on this node and tells the other nodes to do the same
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserCacheInvalidator {
+
+    public static final String CHANNEL = "user_cache_invalidation";
+
+    private final CustomUserDetailsService userDetailsService;
+    private final CredentialVersionService credentialVersionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ReplicaRoutingProperties replicaRoutingProperties;
+
+    private boolean postgres;
+
+    @PostConstruct
+    void init() {
+        try (Connection connection = dataSource.getConnection()) {
+            postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            log.warn("Could not determine database type, cluster cache invalidation disabled: {}", e.getMessage());
+        }
+    }
+
+    public void invalidate(User user) {
+        invalidate(user.getId(), user.getEmail());
+    }
+
+    public void invalidate(Long userId, String email) {
+        evictLocal(userId, email);
+
+        // Evict again after commit so a concurrent read can't re-cache the old row
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictLocal(userId, email);
+                    evictAfterReplicasCatchUp(userId, email);
+                }
+            });
+        } else {
+            evictAfterReplicasCatchUp(userId, email);
+        }
+
+        // NOTIFY is transactional, so other nodes only hear about committed changes
+        if (postgres) {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, userId + ":" + email);
+        }
+    }
+
+    void onNotification(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0) {
+            log.warn("Ignoring malformed cache invalidation payload: {}", payload);
+            return;
+        }
+        Long userId = Long.valueOf(payload.substring(0, separator));
+        String email = payload.substring(separator + 1);
+        evictLocal(userId, email);
+        evictAfterReplicasCatchUp(userId, email);
+    }
+
+    void evictAllLocal() {
+        userDetailsService.evictAll();
+        credentialVersionService.evictAll();
+        entityManagerFactory.getCache().evict(User.class);
+        entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictNaturalIdData(User.class);
+    }
+
+    boolean isPostgres() {
+        return postgres;
+    }
+
+    private void evictLocal(Long userId, String email) {
+        userDetailsService.evict(email);
+        credentialVersionService.evict(userId);
+        // Second-level cache entry; harmless on the writing node, which re-caches after commit
+        entityManagerFactory.getCache().evict(User.class, userId);
+        evictNaturalId(email);
+    }
+
+    // A read-only transaction on a lagging replica can re-cache the old row after the eviction; once the
+    // replicas in use are within their lag tolerance, a second eviction drops whatever was cached meanwhile
+    private void evictAfterReplicasCatchUp(Long userId, String email) {
+        if (!replicaRoutingProperties.isEnabled() || replicaRoutingProperties.getReplicas().isEmpty()) {
+            return;
+        }
+        long delay = replicaRoutingProperties.staleReadWindow().toMillis();
+        CompletableFuture.runAsync(() -> evictLocal(userId, email),
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+    }
+
+    // Drops the cached email -> id resolution, which would otherwise outlive a deleted row
+    private void evictNaturalId(String email) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(User.class);
+        NaturalIdDataAccess naturalIdAccess = persister.getNaturalIdCacheAccessStrategy();
+        if (naturalIdAccess == null) {
+            return;
+        }
+        // The cache key includes the tenant, so it can only be built from a session; this one never opens a connection
+        try (Session session = sessionFactory.openSession()) {
+            naturalIdAccess.evict(naturalIdAccess.generateCacheKey(
+                    email, persister, session.unwrap(SharedSessionContractImplementor.class)));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Dto.Request.UserDirectoryFilter;
+import com.example.agribiz.Dto.Response.UserDirectoryEntry;
+import com.example.agribiz.Dto.Response.UserDirectoryPage;
+import com.example.agribiz.Repository.UserDirectoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Admin user listing and export
+@Service
+@Slf4j
+public class UserDirectoryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final String CSV_HEADER =
+            "id,first_name,last_name,email,role,verified,enabled,account_non_locked,phone_number,created_at\n";
+
+    private final UserDirectoryRepository userDirectoryRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public UserDirectoryService(UserDirectoryRepository userDirectoryRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.userDirectoryRepository = userDirectoryRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public UserDirectoryPage listUsers(UserDirectoryFilter filter, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        // One extra row tells us whether another page exists without a count query
+        List<UserDirectoryEntry> rows = userDirectoryRepository.findPage(filter, decodeCursor(cursor), pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            UserDirectoryEntry last = rows.get(pageSize - 1);
+            nextCursor = encodeCursor(new UserDirectoryRepository.Cursor(last.getCreatedAt(), last.getId()));
+        }
+        return UserDirectoryPage.builder()
+                .users(List.copyOf(rows))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // Each row is written as soon as the driver hands it over, so memory use doesn't grow with the user base
+    public long exportCsv(UserDirectoryFilter filter, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        AtomicLong rows = new AtomicLong();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> userDirectoryRepository.forEach(filter, entry -> {
+                try {
+                    writeRow(writer, entry);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows.incrementAndGet();
+            }));
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the transaction has already rolled back
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Exported {} users", rows.get());
+        return rows.get();
+    }
+
+    private static void writeRow(Writer writer, UserDirectoryEntry entry) throws IOException {
+        writer.write(Long.toString(entry.getId()));
+        writer.write(',');
+        writer.write(csvField(entry.getFirstName()));
+        writer.write(',');
+        writer.write(csvField(entry.getLastName()));
+        writer.write(',');
+        writer.write(csvField(entry.getEmail()));
+        writer.write(',');
+        writer.write(entry.getRole().name());
+        writer.write(',');
+        writer.write(Boolean.toString(entry.isVerified()));
+        writer.write(',');
+        writer.write(Boolean.toString(entry.isEnabled()));
+        writer.write(',');
+        writer.write(Boolean.toString(entry.isAccountNonLocked()));
+        writer.write(',');
+        writer.write(csvField(entry.getPhoneNumber()));
+        writer.write(',');
+        writer.write(entry.getCreatedAt().toString());
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        // Names come from self-registration; a leading =, +, - or @ would run as a formula in a spreadsheet
+        if ("=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    private static String encodeCursor(UserDirectoryRepository.Cursor cursor) {
+        String raw = cursor.createdAt() + "|" + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UserDirectoryRepository.Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new UserDirectoryRepository.Cursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
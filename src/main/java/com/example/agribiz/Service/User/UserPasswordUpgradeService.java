@@ -0,0 +1,34 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Stores the rehashed password DaoAuthenticationProvider produces after a successful login
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserPasswordUpgradeService implements UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+    private final UserCacheInvalidator userCacheInvalidator;
+
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        return userRepository.findByEmail(userDetails.getUsername())
+                .map(user -> {
+                    // Same password, new cost: the credential version stays so issued tokens remain valid
+                    user.setPassword(newPassword);
+                    userRepository.save(user);
+                    userCacheInvalidator.invalidate(user);
+                    log.info("Rehashed password for user: {}", user.getEmail());
+                    return (UserDetails) user.toBuilder().build();
+                })
+                .orElse(userDetails);
+    }
+}
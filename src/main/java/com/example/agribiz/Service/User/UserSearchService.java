@@ -0,0 +1,96 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Dto.Response.UserSearchResult;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Repository.UserSearchRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Lets users find farmers and buyers by name, village or phone number
+@Service
+public class UserSearchService {
+
+    public static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 50;
+    private static final int MAX_QUERY_LENGTH = 100;
+    // Trigram indexes can't narrow down shorter digit runs
+    private static final int MIN_PHONE_DIGITS = 3;
+    // Closest dictionary words tried for each word of the query
+    private static final int ALTERNATIVES_PER_WORD = 10;
+
+    private final UserSearchRepository userSearchRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer searchTimer;
+    private final Timer autocompleteTimer;
+    private final double similarityThreshold;
+
+    public UserSearchService(
+            UserSearchRepository userSearchRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.search.similarity-threshold:0.3}") double similarityThreshold
+    ) {
+        this.userSearchRepository = userSearchRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.searchTimer = Timer.builder("agribiz.search").tag("type", "search").register(meterRegistry);
+        this.autocompleteTimer = Timer.builder("agribiz.search").tag("type", "autocomplete").register(meterRegistry);
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    // Typo-tolerant, ranked by how closely the best of name, village or phone matches. Each word of the
+    // query is swapped for the dictionary words spelled like it; a word nothing resembles doesn't narrow
+    // the search, it only lowers the score.
+    public List<UserSearchResult> search(String query, Role role, int limit) {
+        String term = normalize(query);
+        String digits = term.replaceAll("[^0-9]", "");
+        String phoneDigits = digits.length() >= MIN_PHONE_DIGITS ? digits : null;
+        int pageSize = Math.clamp(limit, 1, MAX_LIMIT);
+
+        return searchTimer.record(() -> readOnlyTransaction.execute(status -> {
+            userSearchRepository.setSimilarityThreshold(similarityThreshold);
+            Map<String, List<String>> alternatives = new LinkedHashMap<>();
+            for (UserSearchRepository.WordMatch match : userSearchRepository.matchWords(term, ALTERNATIVES_PER_WORD)) {
+                if (match.word() != null) {
+                    alternatives.computeIfAbsent(match.term(), t -> new ArrayList<>()).add(match.word());
+                }
+            }
+            return userSearchRepository.search(term, List.copyOf(alternatives.values()), phoneDigits, role, pageSize);
+        }));
+    }
+
+    // Names starting with the prefix, alphabetically
+    public List<UserSearchResult> autocomplete(String prefix, Role role, int limit) {
+        String term = normalize(prefix);
+        int pageSize = Math.clamp(limit, 1, MAX_LIMIT);
+
+        return autocompleteTimer.record(() -> {
+            Map<Long, UserSearchResult> unique = new LinkedHashMap<>();
+            for (UserSearchResult result : userSearchRepository.autocomplete(term, role, pageSize)) {
+                unique.putIfAbsent(result.getId(), result);
+            }
+            return List.copyOf(unique.values());
+        });
+    }
+
+    private static String normalize(String query) {
+        String term = query == null ? "" : query.strip().toLowerCase(Locale.ROOT);
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Search text is required");
+        }
+        if (term.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search text must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        return term;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.agribiz.Service.User;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Immutable view of a JWT whose signature and expiry have already been checked
+public record VerifiedToken(
+        String subject,
+        Instant issuedAt,
+        Instant expiresAt,
+        Map<String, Object> claims
+) {
+
+    static VerifiedToken from(Claims claims) {
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                Collections.unmodifiableMap(new LinkedHashMap<>(claims))
+        );
+    }
+
+    public <T> T claim(String name, Class<T> type) {
+        Object value = claims.get(name);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+}
@@ -2,15 +2,19 @@ package com.example.agribiz.Service;
 
 import com.example.agribiz.Dto.Request.*;
 import com.example.agribiz.Dto.Response.AuthenticationResponse;
+import com.example.agribiz.Dto.Response.UploadJobResponse;
 import com.example.agribiz.Dto.Response.UserInfo;
 import com.example.agribiz.Dto.Response.VerificationResponse;
 import com.example.agribiz.Exception.*;
 import com.example.agribiz.Model.User;
 import com.example.agribiz.Repository.UserRepository;
-import com.example.agribiz.Service.User.CloudinaryService;
 import com.example.agribiz.Service.User.EmailService;
 import com.example.agribiz.Service.User.JwtService;
 import com.example.agribiz.Service.User.OtpService;
+import com.example.agribiz.Service.User.ProfileImageUploadJob;
+import com.example.agribiz.Service.User.ProfileImageUploadService;
+import com.example.agribiz.Service.User.UserCacheInvalidator;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,16 +22,24 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
 import java.util.UUID;
 
+// agribiz.user.operation is tagged with the method and, as its outcome, the exception thrown (none on success)
 @Service
 @RequiredArgsConstructor
 @Slf4j
 @Transactional
+@Timed(value = "agribiz.user.operation", description = "UserService calls by method and outcome")
 public class UserService {
 
     private final UserRepository userRepository;
@@ -35,8 +47,9 @@ public class UserService {
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
     private final EmailService emailService;
-    private final CloudinaryService cloudinaryService;
+    private final ProfileImageUploadService profileImageUploadService;
     private final OtpService otpService;
+    private final UserCacheInvalidator userCacheInvalidator;
 
     @Value("${app.name}")
     private String appName;
@@ -73,31 +86,32 @@ public class UserService {
 public VerificationResponse register(RegisterRequest request) {
     log.info("Attempting to register user with email: {}", request.getEmail());
 
+    // Cheap check first, so a taken email doesn't cost a BCrypt hash; the endpoint already says when it's taken
     if (userRepository.existsByEmail(request.getEmail())) {
         throw new UserAlreadyExistsException("User already exists with email: " + request.getEmail());
     }
 
-    var user = User.builder()
-            .firstName(request.getFirstName())
-            .lastName(request.getLastName())
-            .email(request.getEmail())
-            .password(passwordEncoder.encode(request.getPassword()))
-            .role(request.getRole())
-            .isVerified(false) // Set as unverified initially
-            .build();
-
-    var savedUser = userRepository.save(user);
-    log.info("User registered successfully with ID: {} - Pending email verification", savedUser.getId());
+    // The unique email constraint still decides, so two concurrent sign-ups can't both get past the check
+    Long userId = userRepository.insertUnverified(
+                    request.getFirstName(),
+                    request.getLastName(),
+                    request.getEmail(),
+                    passwordEncoder.encode(request.getPassword()),
+                    request.getRole().name())
+            .orElseThrow(() -> new UserAlreadyExistsException("User already exists with email: " + request.getEmail()));
+    log.info("User registered successfully with ID: {} - Pending email verification", userId);
 
     // Generate and send OTP for email verification
-    String fullName = savedUser.getFirstName() + " " + savedUser.getLastName();
-    otpService.generateAndSendOtp(savedUser.getEmail(), fullName);
+    String fullName = request.getFirstName() + " " + request.getLastName();
+    otpService.generateAndSendOtp(request.getEmail(), fullName);
 
     return VerificationResponse.builder()
             .message("Registration successful! Please check your email for verification code.")
             .success(true)
             .build();
 }
+    // A wrong code still commits, so PostgresOtpStore's attempt counter survives the InvalidOtpException
+    @Transactional(noRollbackFor = InvalidOtpException.class)
     public VerificationResponse verifyEmail(VerifyEmailRequest request) {
         log.info("Attempting to verify email: {}", request.getEmail());
 
@@ -117,6 +131,7 @@ public VerificationResponse register(RegisterRequest request) {
         // Update user verification status
         user.setIsVerified(true);
         userRepository.save(user);
+        userCacheInvalidator.invalidate(user);
 
         log.info("Email verified successfully for user: {}", user.getEmail());
 
@@ -236,28 +251,29 @@ public AuthenticationResponse authenticate(LoginRequest request) {
         }
 
         var updatedUser = userRepository.save(user);
+        userCacheInvalidator.invalidate(updatedUser);
         log.info("Profile updated successfully for user: {}", userEmail);
 
         return mapToUserInfo(updatedUser);
     }
 
-    public String updateProfileImage(String userEmail, MultipartFile file) {
+    // Spooling the multipart body to disk can take as long as the client's upload; no transaction or pooled
+    // connection is held meanwhile. The lookup runs in the repository's own short read.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UploadJobResponse updateProfileImage(String userEmail, MultipartFile file) {
         log.info("Updating profile image for user: {}", userEmail);
 
-        var user = userRepository.findByEmail(userEmail)
+        userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
 
-        try {
-            String imageUrl = cloudinaryService.uploadImage(file);
-            user.setProfileImageUrl(imageUrl);
-            userRepository.save(user);
-
-            log.info("Profile image updated successfully for user: {}", userEmail);
-            return imageUrl;
-        } catch (Exception e) {
-            log.error("Error updating profile image for user: {}", userEmail, e);
-            throw new RuntimeException("Failed to upload image");
-        }
+        // The upload runs in the background; profileImageUrl is set when it completes
+        return mapToUploadJobResponse(profileImageUploadService.submit(userEmail, file));
+    }
+
+    // Job state lives in memory on this node
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UploadJobResponse getProfileImageUpload(String userEmail, String jobId) {
+        return mapToUploadJobResponse(profileImageUploadService.getJob(userEmail, jobId));
     }
 
     public void changePassword(String userEmail, ChangePasswordRequest request) {
@@ -271,7 +287,9 @@ public AuthenticationResponse authenticate(LoginRequest request) {
         }
 
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.setCredentialVersion(user.getCredentialVersion() + 1);
         userRepository.save(user);
+        userCacheInvalidator.invalidate(user);
 
         log.info("Password changed successfully for user: {}", userEmail);
     }
@@ -283,7 +301,9 @@ public AuthenticationResponse authenticate(LoginRequest request) {
                 .orElseThrow(() -> new UserNotFoundException("User not found with email: " + request.getEmail()));
 
         String resetToken = UUID.randomUUID().toString();
-        user.setResetToken(resetToken);
+        // users keeps only the digest. The raw token sits in the queued email_outbox body until it is sent,
+        // then the body is cleared and the row itself is purged after app.mail.outbox.retention (7 days)
+        user.setResetToken(hashResetToken(resetToken));
         user.setResetTokenExpiry(LocalDateTime.now().plusHours(24)); // Token valid for 24 hours
 
         userRepository.save(user);
@@ -293,20 +313,36 @@ public AuthenticationResponse authenticate(LoginRequest request) {
     }
 
     public void confirmPasswordReset(PasswordResetConfirm request) {
-        log.info("Confirming password reset for token: {}", request.getToken());
+        log.info("Confirming password reset");
 
-        var user = userRepository.findByValidResetToken(request.getToken(), LocalDateTime.now())
+        var user = userRepository.findByValidResetToken(hashResetToken(request.getToken()), LocalDateTime.now())
                 .orElseThrow(() -> new InvalidTokenException("Invalid or expired reset token"));
 
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         user.setResetToken(null);
         user.setResetTokenExpiry(null);
+        user.setCredentialVersion(user.getCredentialVersion() + 1);
 
         userRepository.save(user);
+        userCacheInvalidator.invalidate(user);
 
         log.info("Password reset confirmed for user: {}", user.getEmail());
     }
 
+    @Transactional(readOnly = true)
+    public String getUserProfileETag(String userEmail) {
+        // Natural-id lookup, so a repeat poll is answered from the second-level cache without touching Postgres
+        var user = userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new UserNotFoundException("User not found"));
+
+        // updatedAt moves on every write to the row, and the id keeps equal timestamps of different users apart
+        LocalDateTime updatedAt = user.getUpdatedAt();
+        long micros = updatedAt == null ? 0
+                : updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+        return "\"" + user.getId() + "-" + Long.toHexString(micros) + "\"";
+    }
+
+    @Transactional(readOnly = true)
     public UserInfo getUserProfile(String userEmail) {
         var user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new UserNotFoundException("User not found"));
@@ -314,6 +350,27 @@ public AuthenticationResponse authenticate(LoginRequest request) {
         return mapToUserInfo(user);
     }
 
+    private static String hashResetToken(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private UploadJobResponse mapToUploadJobResponse(ProfileImageUploadJob job) {
+        return UploadJobResponse.builder()
+                .jobId(job.getId())
+                .status(job.getStatus())
+                .bytesUploaded(job.getBytesUploaded())
+                .totalBytes(job.getTotalBytes())
+                .imageUrl(job.getImageUrl())
+                .thumbnailUrl(job.getThumbnailUrl())
+                .error(job.getError())
+                .build();
+    }
+
     private UserInfo mapToUserInfo(User user) {
         return UserInfo.builder()
                 .id(user.getId())
@@ -322,6 +379,7 @@ public AuthenticationResponse authenticate(LoginRequest request) {
                 .email(user.getEmail())
                 .role(user.getRole())
                 .profileImageUrl(user.getProfileImageUrl())
+                .profileThumbnailUrl(user.getProfileThumbnailUrl())
                 .nationalId(user.getNationalId())
                 .address(user.getAddress())
                 .phoneNumber(user.getPhoneNumber())
@@ -0,0 +1,16 @@
+-- Responses to POST requests sent with an Idempotency-Key header, so a client retrying over a flaky
+-- connection gets the original answer instead of a second sign-up, OTP email or password hash.
+-- A row with no response_status is a request still being processed.
+create table idempotency_keys (
+    request_path varchar(255) not null,
+    idempotency_key varchar(255) not null,
+    request_hash varchar(64) not null,
+    response_status integer,
+    content_type varchar(255),
+    response_body bytea,
+    created_at timestamp(6) with time zone not null,
+    expires_at timestamp(6) with time zone not null,
+    primary key (request_path, idempotency_key)
+);
+
+create index idx_idempotency_keys_expires_at on idempotency_keys (expires_at);
@@ -0,0 +1,6 @@
+-- SENDING marks a row claimed by a dispatcher; its next_attempt_at is the lease expiry, after which
+-- another node may claim it again. Sent messages drop their body, which can hold OTPs and reset tokens.
+alter table email_outbox drop constraint if exists email_outbox_status_check;
+alter table email_outbox add constraint email_outbox_status_check
+    check (status in ('PENDING', 'SENDING', 'SENT', 'DEAD'));
+alter table email_outbox alter column body drop not null;
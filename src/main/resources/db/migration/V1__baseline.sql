@@ -0,0 +1,28 @@
+-- Schema as Hibernate auto-DDL created it before Flyway. Existing databases are baselined at this version instead of
+-- running it, so anything the application gained since then belongs in a later migration.
+
+create table users (
+    account_non_expired boolean not null,
+    account_non_locked boolean not null,
+    credentials_non_expired boolean not null,
+    enabled boolean not null,
+    is_verified boolean not null,
+    created_at timestamp(6),
+    id bigint generated by default as identity,
+    reset_token_expiry timestamp(6),
+    updated_at timestamp(6),
+    verification_token_expiry timestamp(6),
+    address varchar(255),
+    bio varchar(255),
+    email varchar(255) not null unique,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    national_id varchar(255),
+    password varchar(255) not null,
+    phone_number varchar(255),
+    profile_image_url varchar(255),
+    reset_token varchar(255),
+    role varchar(255) not null check (role in ('FARMER','BUYER','INVESTOR')),
+    verification_token varchar(255),
+    primary key (id)
+);
@@ -0,0 +1,45 @@
+-- Columns and tables added while the schema was still auto-DDL. IF NOT EXISTS keeps this safe on databases where
+-- some of them were created by hand before the baseline.
+alter table users add column if not exists credential_version bigint default 0 not null;
+alter table users add column if not exists profile_thumbnail_url varchar(255);
+
+create table if not exists email_outbox (
+    attempts integer not null,
+    created_at timestamp(6),
+    id bigint generated by default as identity,
+    next_attempt_at timestamp(6) not null,
+    sent_at timestamp(6),
+    last_error varchar(1000),
+    body text not null,
+    recipient varchar(255) not null,
+    status varchar(255) not null check (status in ('PENDING','SENT','DEAD')),
+    subject varchar(255) not null,
+    primary key (id)
+);
+
+create index if not exists idx_email_outbox_status_next_attempt on email_outbox (status, next_attempt_at);
+
+create table if not exists pending_otps (
+    attempts integer not null,
+    expires_at timestamp(6) with time zone not null,
+    email varchar(255) not null,
+    otp_hash bytea not null,
+    primary key (email)
+);
+
+create index if not exists idx_pending_otps_expires_at on pending_otps (expires_at);
+
+create table if not exists media_assets (
+    ref_count integer not null,
+    created_at timestamp(6) with time zone not null,
+    id bigint generated by default as identity,
+    size_bytes bigint not null,
+    variant varchar(20) not null check (variant in ('AVATAR','THUMBNAIL')),
+    digest varchar(64) not null,
+    url varchar(1000) not null,
+    public_id varchar(255) not null,
+    primary key (id),
+    constraint uk_media_assets_digest_variant unique (digest, variant)
+);
+
+create index if not exists idx_media_assets_url on media_assets (url);
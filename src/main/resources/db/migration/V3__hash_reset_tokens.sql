@@ -0,0 +1,4 @@
+-- Reset tokens are now stored as the hex SHA-256 of the emailed token; convert the ones still pending
+update users
+set reset_token = encode(sha256(convert_to(reset_token, 'UTF8')), 'hex')
+where reset_token is not null;
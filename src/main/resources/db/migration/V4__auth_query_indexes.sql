@@ -0,0 +1,12 @@
+-- Built concurrently so existing deployments keep accepting logins and sign-ups while they build.
+-- Flyway runs CONCURRENTLY statements outside a transaction on its own.
+
+-- findByResetToken / findByValidResetToken; equality on the token implies NOT NULL, so the partial index applies
+create unique index concurrently if not exists uk_users_reset_token
+    on users (reset_token)
+    where reset_token is not null;
+
+-- Oldest-first scans of accounts that never finished sign-up
+create index concurrently if not exists idx_users_unverified_created_at
+    on users (created_at)
+    where is_verified = false;
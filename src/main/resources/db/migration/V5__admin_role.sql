@@ -0,0 +1,4 @@
+-- ADMIN is back in Role; the enum check Hibernate generated for V1 only lists the self-service roles
+alter table users drop constraint if exists users_role_check;
+alter table users add constraint users_role_check
+    check (role in ('FARMER', 'BUYER', 'INVESTOR', 'ADMIN'));
@@ -0,0 +1,4 @@
+-- The admin directory pages on (created_at, id); a NULL would drop a row out of every page.
+-- Hibernate has always filled created_at, so the backfill only touches rows written by hand.
+update users set created_at = coalesce(updated_at, localtimestamp) where created_at is null;
+alter table users alter column created_at set not null;
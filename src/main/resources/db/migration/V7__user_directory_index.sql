@@ -0,0 +1,4 @@
+-- Newest-first keyset pages of the admin directory and export; scanned backwards for DESC order.
+-- Separate from V5 because Flyway won't mix CONCURRENTLY with transactional statements in one migration.
+create index concurrently if not exists idx_users_created_at_id
+    on users (created_at, id);
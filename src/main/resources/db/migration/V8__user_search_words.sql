@@ -0,0 +1,63 @@
+-- Dictionary of every distinct word in users' names and addresses, for typo-tolerant search.
+-- Fuzzy-matching a query word against a few thousand distinct words and then looking the close ones up
+-- exactly scales with the vocabulary instead of with the number of users. pg_trgm is a trusted extension,
+-- so the database owner can create it.
+create extension if not exists pg_trgm;
+
+create table user_search_words (
+    word text primary key
+);
+
+-- The word list is the lexemes of the same tsvector idx_users_search_vector (V8) indexes, so every
+-- dictionary word is something the users index can find. Words are never removed; one nobody uses any
+-- more only costs a dead candidate.
+create function user_search_vector(first_name text, last_name text, address text) returns tsvector
+    language sql immutable parallel safe as $$
+    select to_tsvector('simple', first_name || ' ' || last_name || ' ' || coalesce(address, ''))
+$$;
+
+-- Inserts once per statement, sorted, so a bulk import and concurrent sign-ups sharing new words take the
+-- dictionary's row locks in the same order
+create function user_search_words_collect_inserted() returns trigger
+    language plpgsql as $$
+begin
+    insert into user_search_words (word)
+    select distinct unnest(tsvector_to_array(user_search_vector(first_name, last_name, address)))
+    from inserted
+    order by 1
+    on conflict do nothing;
+    return null;
+end
+$$;
+
+create function user_search_words_collect_updated() returns trigger
+    language plpgsql as $$
+begin
+    insert into user_search_words (word)
+    select unnest(tsvector_to_array(user_search_vector(new.first_name, new.last_name, new.address)))
+    on conflict do nothing;
+    return null;
+end
+$$;
+
+create trigger users_search_words_insert
+    after insert on users
+    referencing new table as inserted
+    for each statement execute function user_search_words_collect_inserted();
+
+create trigger users_search_words_update
+    after update of first_name, last_name, address on users
+    for each row
+    when (old.first_name is distinct from new.first_name
+        or old.last_name is distinct from new.last_name
+        or old.address is distinct from new.address)
+    execute function user_search_words_collect_updated();
+
+insert into user_search_words (word)
+select distinct unnest(tsvector_to_array(user_search_vector(first_name, last_name, address)))
+from users
+on conflict do nothing;
+
+-- Built after the backfill: GIN cost estimates come from statistics a bulk load through the pending
+-- list leaves empty until the next vacuum
+create index idx_user_search_words_trgm on user_search_words using gin (word gin_trgm_ops);
@@ -0,0 +1,17 @@
+-- User search. The expressions must match UserSearchRepository exactly for the planner to use them.
+
+-- Exact lookup of the dictionary words (V7) a query fuzzy-matched
+create index concurrently if not exists idx_users_search_vector
+    on users using gin (user_search_vector(first_name, last_name, address));
+
+-- Phone number fragments (LIKE '%...%') on the digits alone, however the number was typed
+create index concurrently if not exists idx_users_search_phone_trgm
+    on users using gin ((regexp_replace(phone_number, '[^0-9]', '', 'g')) gin_trgm_ops);
+
+-- Prefix autocomplete. The C collation lets one index serve both the prefix range and ORDER BY, so a
+-- suggestion list stops after the first few index entries instead of sorting every match.
+create index concurrently if not exists idx_users_first_name_prefix
+    on users ((lower(first_name) collate "C"), id);
+
+create index concurrently if not exists idx_users_last_name_prefix
+    on users ((lower(last_name) collate "C"), id);
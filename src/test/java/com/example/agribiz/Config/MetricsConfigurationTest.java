@@ -0,0 +1,87 @@
+package com.example.agribiz.Config;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsConfigurationTest {
+
+    @Timed("agribiz.test.operation")
+    static class TimedService {
+        void succeed() {
+        }
+
+        void fail() {
+            throw new IllegalArgumentException("rejected");
+        }
+    }
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    MetricsAutoConfiguration.class, SimpleMetricsExportAutoConfiguration.class, AopAutoConfiguration.class))
+            .withUserConfiguration(MetricsConfiguration.class)
+            .withBean(TimedService.class);
+
+    @Test
+    void publishesPercentilesAndHistogramsForOurMetersOnly() {
+        contextRunner.run(context -> {
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            Timer ours = registry.timer("agribiz.test.latency");
+            Timer theirs = registry.timer("http.server.requests");
+            for (int i = 1; i <= 100; i++) {
+                ours.record(Duration.ofMillis(i));
+                theirs.record(Duration.ofMillis(i));
+            }
+
+            assertEquals(3, ours.takeSnapshot().percentileValues().length);
+            assertEquals(0, theirs.takeSnapshot().percentileValues().length);
+
+            // The simple registry doesn't publish buckets, so check what a Prometheus-style registry would get
+            MeterFilter filter = context.getBean(MetricsConfiguration.class).agribizDistributions();
+            DistributionStatisticConfig unset = DistributionStatisticConfig.builder().build();
+            assertEquals(Boolean.TRUE, filter.configure(ours.getId(), unset).isPercentileHistogram());
+            assertNull(filter.configure(theirs.getId(), unset).isPercentileHistogram());
+        });
+    }
+
+    @Test
+    void explicitDistributionSettingsWin() {
+        contextRunner
+                .withPropertyValues("management.metrics.distribution.percentiles.agribiz.test=0.9")
+                .run(context -> {
+                    Timer timer = context.getBean(MeterRegistry.class).timer("agribiz.test.latency");
+                    timer.record(Duration.ofMillis(5));
+                    assertEquals(1, timer.takeSnapshot().percentileValues().length);
+                });
+    }
+
+    @Test
+    void timedBeansAreTaggedWithTheirOutcome() {
+        contextRunner.run(context -> {
+            TimedService service = context.getBean(TimedService.class);
+            service.succeed();
+            assertThrows(IllegalArgumentException.class, service::fail);
+
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertEquals(1, registry.get("agribiz.test.operation")
+                    .tags("method", "succeed", "exception", "none").timer().count());
+            assertEquals(1, registry.get("agribiz.test.operation")
+                    .tags("method", "fail", "exception", "IllegalArgumentException").timer().count());
+        });
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.agribiz.Config;
+
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import com.example.agribiz.Repository.UserRepository;
+import com.example.agribiz.Service.User.CustomUserDetailsService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistrar;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two independent Postgres instances stand in for a primary and its replica; each holds a differently
+// named copy of the same user, so the name that comes back shows where a read went
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        // Every read has to reach a database for the test to see where it went
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "app.datasource.routing.enabled=true",
+        "app.datasource.routing.lag-check-interval=1h",
+        "app.datasource.routing.lag-query=SELECT lag_seconds FROM replica_lag"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        SchemaMigrationConfiguration.class, ReplicaRoutingConfiguration.class, ReplicaRoutingProperties.class,
+        CustomUserDetailsService.class, ReplicaRoutingDataSourceTest.Databases.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaRoutingDataSourceTest {
+
+    private static final String EMAIL = "ama@example.com";
+
+    @TestConfiguration
+    static class Databases {
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres primaryPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        // Replication would bring the schema over; here it is migrated directly
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres replicaPostgres() throws IOException {
+            EmbeddedPostgres replica = EmbeddedPostgres.start();
+            Flyway.configure()
+                    .dataSource(replica.getPostgresDatabase())
+                    .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                    .load()
+                    .migrate();
+            new JdbcTemplate(replica.getPostgresDatabase())
+                    .execute("CREATE TABLE replica_lag AS SELECT 0::float8 AS lag_seconds");
+            return replica;
+        }
+
+        @Bean
+        DynamicPropertyRegistrar databaseUrls(EmbeddedPostgres primaryPostgres, EmbeddedPostgres replicaPostgres) {
+            return registry -> {
+                registry.add("spring.datasource.url", () -> primaryPostgres.getJdbcUrl("postgres", "postgres"));
+                registry.add("spring.datasource.username", () -> "postgres");
+                registry.add("app.datasource.routing.replicas[0].url",
+                        () -> replicaPostgres.getJdbcUrl("postgres", "postgres"));
+            };
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    private ReplicaRoutingProperties properties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EmbeddedPostgres primaryPostgres;
+
+    @Autowired
+    private EmbeddedPostgres replicaPostgres;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryPostgres.getPostgresDatabase());
+        replica = new JdbcTemplate(replicaPostgres.getPostgresDatabase());
+        for (JdbcTemplate database : List.of(primary, replica)) {
+            database.update("DELETE FROM users");
+        }
+        insertUser(primary, "Primary");
+        insertUser(replica, "Replica");
+        userDetailsService.evictAll();
+    }
+
+    @AfterEach
+    void resetLag() {
+        properties.setFallback(ReplicaRoutingProperties.LagFallback.PRIMARY);
+        replica.update("UPDATE replica_lag SET lag_seconds = 0");
+        routingDataSource.checkReplicas();
+    }
+
+    @Test
+    void readOnlyTransactionsReadFromTheReplica() {
+        assertEquals(List.of("replica-0"), routingDataSource.eligibleReplicas());
+
+        assertEquals("Replica", readOnly().execute(status -> firstName()));
+        assertEquals("Primary", readWrite().execute(status -> firstName()));
+        // Repository reads outside a service transaction are read-only by default
+        assertEquals("Replica", firstName());
+        assertEquals("Replica", ((User) userDetailsService.loadUserByUsername(EMAIL)).getFirstName());
+    }
+
+    @Test
+    void writesGoToThePrimaryEvenFromAReadOnlyCaller() {
+        userRepository.insertUnverified("Kofi", "Mensah", "kofi@example.com", "hash", Role.FARMER.name());
+
+        assertEquals(1, primary.queryForObject(
+                "SELECT count(*) FROM users WHERE email = 'kofi@example.com'", Integer.class));
+        assertEquals(0, replica.queryForObject(
+                "SELECT count(*) FROM users WHERE email = 'kofi@example.com'", Integer.class));
+    }
+
+    @Test
+    void readsMoveToThePrimaryWhileTheReplicaLags() {
+        replica.update("UPDATE replica_lag SET lag_seconds = 30");
+        routingDataSource.checkReplicas();
+
+        assertEquals(List.of(), routingDataSource.eligibleReplicas());
+        assertEquals("Primary", readOnly().execute(status -> firstName()));
+
+        replica.update("UPDATE replica_lag SET lag_seconds = 0.5");
+        routingDataSource.checkReplicas();
+        assertEquals("Replica", readOnly().execute(status -> firstName()));
+    }
+
+    @Test
+    void leastLaggingFallbackKeepsReadsOffThePrimary() {
+        properties.setFallback(ReplicaRoutingProperties.LagFallback.LEAST_LAGGING);
+        replica.update("UPDATE replica_lag SET lag_seconds = 30");
+        routingDataSource.checkReplicas();
+
+        assertEquals("Replica", readOnly().execute(status -> firstName()));
+    }
+
+    @Test
+    void unreachableReplicaIsSkipped() throws Exception {
+        HikariDataSource down = new HikariDataSource();
+        down.setJdbcUrl("jdbc:postgresql://localhost:1/postgres");
+        down.setConnectionTimeout(250);
+        down.setInitializationFailTimeout(-1);
+        ReplicaRoutingProperties defaults = new ReplicaRoutingProperties();
+
+        try (ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                primaryPostgres.getPostgresDatabase(), Map.of("down", down), defaults, new SimpleMeterRegistry())) {
+            routing.afterPropertiesSet();
+            assertEquals(List.of(), routing.eligibleReplicas());
+
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            try (Connection connection = routing.getConnection()) {
+                assertEquals(primaryPostgres.getPort(), serverPort(connection));
+            } finally {
+                TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            }
+        }
+    }
+
+    @Test
+    void defaultLagQueryRunsOnAPostgresThatIsNotInRecovery() throws Exception {
+        ReplicaRoutingProperties defaults = new ReplicaRoutingProperties();
+        try (ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                primaryPostgres.getPostgresDatabase(), Map.of("replica", replicaPostgres.getPostgresDatabase()),
+                defaults, new SimpleMeterRegistry())) {
+            routing.afterPropertiesSet();
+            assertEquals(List.of("replica"), routing.eligibleReplicas());
+        }
+    }
+
+    @Test
+    void countsWhereReadsWent() {
+        double before = meterRegistry.counter("agribiz.datasource.reads", "target", "replica").count();
+        readOnly().execute(status -> firstName());
+        assertTrue(meterRegistry.counter("agribiz.datasource.reads", "target", "replica").count() > before);
+        assertEquals(0.0, meterRegistry.get("agribiz.datasource.replica.lag").tag("replica", "replica-0")
+                .gauge().value());
+    }
+
+    private String firstName() {
+        return userRepository.findByEmail(EMAIL).orElseThrow().getFirstName();
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private TransactionTemplate readWrite() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private static void insertUser(JdbcTemplate database, String firstName) {
+        database.update("INSERT INTO users (first_name, last_name, email, password, is_verified, role, enabled, " +
+                "account_non_expired, account_non_locked, credentials_non_expired, credential_version, created_at) " +
+                "VALUES (?, 'Owusu', ?, 'hash', true, 'FARMER', true, true, true, true, 0, now())", firstName, EMAIL);
+    }
+
+    private static int serverPort(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT inet_server_port()")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.agribiz.Config;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// A database the old auto-DDL built is baselined at V1 rather than migrated from scratch, so everything added
+// since has to arrive through V2 onwards
+class SchemaMigrationBaselineTest {
+
+    @Test
+    void baselinedDatabaseGainsEverythingAddedSinceV1() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+            jdbcTemplate.execute(new ClassPathResource("db/migration/V1__baseline.sql")
+                    .getContentAsString(StandardCharsets.UTF_8));
+
+            FluentConfiguration configuration = Flyway.configure().dataSource(postgres.getPostgresDatabase());
+            new SchemaMigrationConfiguration().baselineExistingSchema().customize(configuration);
+            Flyway flyway = configuration.load();
+            flyway.migrate();
+
+            assertEquals("1", flyway.info().applied()[0].getVersion().getVersion());
+            assertEquals(0, flyway.info().pending().length);
+            assertEquals(List.of("credential_version", "profile_thumbnail_url"), jdbcTemplate.queryForList(
+                    "SELECT column_name FROM information_schema.columns WHERE table_name = 'users' " +
+                            "AND column_name IN ('credential_version', 'profile_thumbnail_url') ORDER BY column_name",
+                    String.class));
+            assertEquals(List.of("email_outbox", "idempotency_keys", "media_assets", "pending_otps"),
+                    jdbcTemplate.queryForList("SELECT table_name FROM information_schema.tables " +
+                            "WHERE table_name IN ('email_outbox', 'idempotency_keys', 'media_assets', 'pending_otps') " +
+                            "ORDER BY table_name", String.class));
+        }
+    }
+}
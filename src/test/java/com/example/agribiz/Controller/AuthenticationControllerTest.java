@@ -0,0 +1,176 @@
+package com.example.agribiz.Controller;
+
+import com.example.agribiz.Config.ReplicaRoutingProperties;
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Exception.GlobalExceptionHandler;
+import com.example.agribiz.Repository.UserRepository;
+import com.example.agribiz.Service.User.CredentialVersionService;
+import com.example.agribiz.Service.User.CustomUserDetailsService;
+import com.example.agribiz.Service.User.ImageRenditionService;
+import com.example.agribiz.Service.User.LocalDiskMediaStore;
+import com.example.agribiz.Service.User.MediaAssetService;
+import com.example.agribiz.Service.User.ProfileImageUploadService;
+import com.example.agribiz.Service.User.UserCacheInvalidator;
+import com.example.agribiz.Service.UserService;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        // Rows are changed behind Hibernate's back, so every lookup has to reach the database
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "app.media.store=local",
+        "app.media.local.root=${java.io.tmpdir}/agribiz-upload-test"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class, ProfileImageUploadService.class,
+        ImageRenditionService.class, MediaAssetService.class, LocalDiskMediaStore.class, UserCacheInvalidator.class,
+        CustomUserDetailsService.class, CredentialVersionService.class, ReplicaRoutingProperties.class,
+        AuthenticationControllerTest.Metrics.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuthenticationControllerTest {
+
+    private static final String EMAIL = "ama@example.com";
+    private static final Authentication AMA = new UsernamePasswordAuthenticationToken(EMAIL, null, List.of());
+    private static final Authentication KOFI =
+            new UsernamePasswordAuthenticationToken("kofi@example.com", null, List.of());
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProfileImageUploadService uploadService;
+
+    @Autowired
+    private UserCacheInvalidator userCacheInvalidator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM media_assets");
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_verified, role, enabled, " +
+                "account_non_expired, account_non_locked, credentials_non_expired, credential_version, created_at, updated_at) " +
+                "VALUES ('Ama', 'Owusu', ?, 'hash', true, 'FARMER', true, true, true, true, 0, now(), now())", EMAIL);
+
+        // Only what the profile endpoints touch; the rest of UserService is covered elsewhere
+        UserService userService = new UserService(userRepository, null, null, null, null, uploadService, null,
+                userCacheInvalidator);
+        mockMvc = MockMvcBuilders.standaloneSetup(new AuthenticationController(userService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void profileIsNotResentWhileTheETagStillMatches() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/auth/profile").principal(AMA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.email").value(EMAIL))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/auth/profile").principal(AMA).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        jdbcTemplate.update("UPDATE users SET bio = 'Cocoa', updated_at = updated_at + interval '1 second' " +
+                "WHERE email = ?", EMAIL);
+        String changed = mockMvc.perform(get("/api/v1/auth/profile").principal(AMA)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.bio").value("Cocoa"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    void uploadIsAcceptedAndCanBeFollowedToCompletion() throws Exception {
+        MvcResult accepted = mockMvc.perform(multipart("/api/v1/auth/profile/image").file(png()).principal(AMA))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.jobId").isNotEmpty())
+                .andReturn();
+        String jobId = JsonPath.read(accepted.getResponse().getContentAsString(), "$.data.jobId");
+        String location = accepted.getResponse().getHeader(HttpHeaders.LOCATION);
+        assertTrue(location.endsWith("/api/v1/auth/profile/image/jobs/" + jobId), location);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        String status;
+        do {
+            assertTrue(System.nanoTime() < deadline, "upload never finished");
+            Thread.sleep(20);
+            status = JsonPath.read(mockMvc.perform(get(location).principal(AMA))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), "$.data.status");
+        } while (!status.equals("COMPLETED") && !status.equals("FAILED"));
+
+        mockMvc.perform(get(location).principal(AMA))
+                .andExpect(jsonPath("$.data.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.data.imageUrl").isNotEmpty())
+                .andExpect(jsonPath("$.data.thumbnailUrl").isNotEmpty());
+    }
+
+    @Test
+    void anotherUsersJobIsNotFound() throws Exception {
+        MvcResult accepted = mockMvc.perform(multipart("/api/v1/auth/profile/image").file(png()).principal(AMA))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        String location = accepted.getResponse().getHeader(HttpHeaders.LOCATION);
+
+        mockMvc.perform(get(location).principal(KOFI)).andExpect(status().isNotFound());
+    }
+
+    private static MockMultipartFile png() throws Exception {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return new MockMultipartFile("file", "photo.png", "image/png", bytes.toByteArray());
+    }
+}
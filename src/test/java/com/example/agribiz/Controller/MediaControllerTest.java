@@ -0,0 +1,105 @@
+package com.example.agribiz.Controller;
+
+import com.example.agribiz.Service.User.LocalDiskMediaStore;
+import com.example.agribiz.Service.User.StoredImage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class MediaControllerTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @TempDir
+    Path root;
+
+    private MockMvc mockMvc;
+    private String key;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        LocalDiskMediaStore store = new LocalDiskMediaStore();
+        ReflectionTestUtils.setField(store, "root", root);
+        ReflectionTestUtils.setField(store, "baseUrl", "/api/v1/public/media");
+        ReflectionTestUtils.invokeMethod(store, "init");
+
+        Path source = Files.createTempFile(root, "source-", ".jpg");
+        Files.writeString(source, CONTENT);
+        StoredImage stored = store.store(source, bytes -> { });
+        key = stored.publicId();
+
+        MediaController controller = new MediaController(store);
+        ReflectionTestUtils.setField(controller, "sendfileThreshold", DataSize.ofKilobytes(48));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void servesWholeFileWithImmutableCachingHeaders() throws Exception {
+        mockMvc.perform(get("/api/v1/public/media/" + key))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + key + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().bytes(CONTENT.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void servesSingleByteRanges() throws Exception {
+        mockMvc.perform(get("/api/v1/public/media/" + key).header(HttpHeaders.RANGE, "bytes=5-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-9/20"))
+                .andExpect(content().string("56789"));
+
+        mockMvc.perform(get("/api/v1/public/media/" + key).header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("hij"));
+
+        mockMvc.perform(get("/api/v1/public/media/" + key).header(HttpHeaders.RANGE, "bytes=15-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 15-19/20"));
+    }
+
+    @Test
+    void rejectsRangesPastTheEnd() throws Exception {
+        mockMvc.perform(get("/api/v1/public/media/" + key).header(HttpHeaders.RANGE, "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */20"));
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeDoesNotMatch() throws Exception {
+        mockMvc.perform(get("/api/v1/public/media/" + key)
+                        .header(HttpHeaders.RANGE, "bytes=0-1")
+                        .header(HttpHeaders.IF_RANGE, "\"something-else\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void returnsNotModifiedForMatchingEtag() throws Exception {
+        mockMvc.perform(get("/api/v1/public/media/" + key).header(HttpHeaders.IF_NONE_MATCH, "\"" + key + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void returnsNotFoundForUnknownOrInvalidKeys() throws Exception {
+        mockMvc.perform(get("/api/v1/public/media/missing.jpg"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/public/media/..%2Fetc.passwd"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.agribiz.Monitoring;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class RequestProfilingFilterTest {
+
+    @RestController
+    static class PhasedController {
+        @GetMapping("/nested")
+        String nested() throws InterruptedException {
+            try (var outer = RequestProfiler.phase("outer")) {
+                try (var inner = RequestProfiler.phase("inner")) {
+                    Thread.sleep(5);
+                }
+                Thread.sleep(5);
+            }
+            try (var after = RequestProfiler.phase("after")) {
+                Thread.sleep(5);
+            }
+            return "ok";
+        }
+
+        @GetMapping("/many")
+        String many() {
+            for (int i = 0; i < 5; i++) {
+                try (var phase = RequestProfiler.phase("step-" + i)) {
+                    Thread.onSpinWait();
+                }
+            }
+            return "ok";
+        }
+
+        @GetMapping("/broken")
+        String broken() {
+            throw new IllegalStateException("boom");
+        }
+    }
+
+    private final SlowRequestLog slowRequestLog = new SlowRequestLog(10);
+
+    private MockMvc mockMvc(Duration threshold, int maxPhases) {
+        return MockMvcBuilders.standaloneSetup(new PhasedController())
+                .addFilters(new RequestProfilingFilter(slowRequestLog, true, threshold, maxPhases))
+                .build();
+    }
+
+    @Test
+    void slowRequestsKeepTheirPhaseBreakdown() throws Exception {
+        mockMvc(Duration.ZERO, 100).perform(get("/nested")).andExpect(status().isOk());
+
+        SlowRequest request = slowRequestLog.snapshot().getFirst();
+        assertEquals("GET", request.method());
+        assertEquals("/nested", request.path());
+        assertEquals(200, request.status());
+        assertEquals(List.of("outer", "inner", "after"),
+                request.phases().stream().map(PhaseTiming::name).toList());
+        assertEquals(List.of(0, 1, 0), request.phases().stream().map(PhaseTiming::depth).toList());
+
+        PhaseTiming outer = request.phases().get(0);
+        PhaseTiming inner = request.phases().get(1);
+        assertTrue(outer.durationMs() >= inner.durationMs() + 5);
+        assertTrue(request.durationMs() >= outer.durationMs() + request.phases().get(2).durationMs());
+        assertTrue(request.unaccountedMs() >= 0 && request.unaccountedMs() < request.durationMs());
+        assertTrue(request.startedAt().isBefore(Instant.now()));
+    }
+
+    @Test
+    void fastRequestsAreNotKept() throws Exception {
+        mockMvc(Duration.ofHours(1), 100).perform(get("/nested")).andExpect(status().isOk());
+
+        assertEquals(List.of(), slowRequestLog.snapshot());
+    }
+
+    @Test
+    void phasesBeyondTheCapAreOnlyCounted() throws Exception {
+        mockMvc(Duration.ZERO, 2).perform(get("/many")).andExpect(status().isOk());
+
+        SlowRequest request = slowRequestLog.snapshot().getFirst();
+        assertEquals(List.of("step-0", "step-1"), request.phases().stream().map(PhaseTiming::name).toList());
+        assertEquals(3, request.droppedPhases());
+    }
+
+    @Test
+    void failedRequestsAreRecordedAsServerErrors() {
+        MockMvc mockMvc = mockMvc(Duration.ZERO, 100);
+        assertThrows(Exception.class, () -> mockMvc.perform(get("/broken")));
+
+        assertEquals(500, slowRequestLog.snapshot().getFirst().status());
+    }
+
+    @Test
+    void phasesOutsideARequestAreNotKept() throws Exception {
+        try (var phase = RequestProfiler.phase("background")) {
+            Thread.onSpinWait();
+        }
+        mockMvc(Duration.ZERO, 100).perform(get("/many")).andExpect(status().isOk());
+
+        assertEquals(5, slowRequestLog.snapshot().getFirst().phases().size());
+    }
+
+    @Test
+    void phasesAndRequestsAreJfrEvents(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("profile.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.agribiz.Phase").withThreshold(Duration.ZERO);
+            recording.enable("com.example.agribiz.Request").withThreshold(Duration.ZERO);
+            recording.start();
+            mockMvc(Duration.ofHours(1), 100).perform(get("/nested")).andExpect(status().isOk());
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<String> phases = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.example.agribiz.Phase"))
+                .map(event -> event.getString("phase"))
+                .toList();
+        assertEquals(List.of("inner", "outer", "after"), phases);
+        RecordedEvent request = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.example.agribiz.Request"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("/nested", request.getString("path"));
+        assertEquals(200, request.getInt("status"));
+    }
+
+    @Test
+    void aspectNamesPhasesAfterTheController() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new PhasedController());
+        factory.addAspect(new ProfilingAspect());
+        PhasedController controller = factory.getProxy();
+
+        RequestProfiler.Profile profile = RequestProfiler.begin(100);
+        try {
+            controller.many();
+        } finally {
+            RequestProfiler.end();
+        }
+
+        List<PhaseTiming> phases = profile.toSlowRequest("GET", "/many", 200, profile.elapsedNanos()).phases();
+        assertEquals("PhasedController.many", phases.getFirst().name());
+        assertEquals(0, phases.getFirst().depth());
+        assertEquals(1, phases.get(1).depth());
+    }
+
+    @Test
+    void logKeepsTheNewestEntriesFirst() {
+        SlowRequestLog log = new SlowRequestLog(2);
+        for (String path : List.of("/a", "/b", "/c")) {
+            log.add(new SlowRequest(Instant.now(), "GET", path, 200, 1, 1, List.of(), 0));
+        }
+
+        assertEquals(List.of("/c", "/b"), log.snapshot().stream().map(SlowRequest::path).toList());
+        log.clear();
+        assertEquals(List.of(), log.snapshot());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.agribiz.Repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Captures the SQL Hibernate sends so tests can EXPLAIN exactly what the repositories run
+public class RecordingStatementInspector implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    static List<String> drain() {
+        List<String> statements = List.copyOf(STATEMENTS);
+        STATEMENTS.clear();
+        return statements;
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.agribiz.Repository;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Migrates an embedded Postgres, then EXPLAINs the SQL the repositories actually send with sequential scans
+// disabled. A query that still plans a Seq Scan has no usable index, which is the regression this guards against.
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.agribiz.Repository.RecordingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class})
+class SchemaQueryPlanTest {
+
+    // With several indexes on created_at, an empty table leaves the choice between them to chance; a
+    // realistic, analysed table (mostly verified farmers) makes the planner pick the one it would in production
+    private static final List<String> SEED_USERS = List.of(
+            "INSERT INTO users (first_name, last_name, email, password, is_verified, role, enabled, " +
+                    "account_non_expired, account_non_locked, credentials_non_expired, credential_version, " +
+                    "created_at, updated_at) " +
+                    "SELECT 'Seed', 'User', 'seed' || g || '@example.com', 'hash', g % 100 <> 0, " +
+                    "CASE WHEN g % 10 = 0 THEN 'BUYER' ELSE 'FARMER' END, true, true, true, true, 0, " +
+                    "localtimestamp - g * interval '1 minute', localtimestamp FROM generate_series(1, 5000) g",
+            "ANALYZE users");
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private PendingOtpRepository pendingOtpRepository;
+
+    @Autowired
+    private MediaAssetRepository mediaAssetRepository;
+
+    @Test
+    void appliesEveryMigration() {
+        assertEquals(0, flyway.info().pending().length);
+        assertEquals("11", flyway.info().current().getVersion().getVersion());
+    }
+
+    @Test
+    void resetTokenLookupsUseTheHashedTokenIndex() throws SQLException {
+        assertIndexed(() -> userRepository.findByValidResetToken("digest", LocalDateTime.now()), "uk_users_reset_token");
+        assertIndexed(() -> userRepository.findByResetToken("digest"), "uk_users_reset_token");
+    }
+
+    @Test
+    void userLookupsUseKeys() throws SQLException {
+        assertIndexed(() -> userRepository.findByEmail("farmer@example.com"), "users_email_key");
+        assertIndexed(() -> userRepository.existsByEmail("farmer@example.com"), "users_email_key");
+        assertIndexed(() -> userRepository.findActiveCredentialVersion(1L), "users_pkey");
+    }
+
+    @Test
+    void unverifiedAccountScanUsesPartialIndex() throws SQLException {
+        // The keyset chunk AccountReaper deletes from
+        String plan = explain(SEED_USERS, "SELECT id FROM users WHERE is_verified = false AND created_at < $1 " +
+                "AND created_at >= $2 AND (created_at > $2 OR id > $3) ORDER BY created_at, id LIMIT $4");
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertTrue(plan.contains("idx_users_unverified_created_at"), plan);
+
+        String resetTokens = explain("SELECT id FROM users WHERE reset_token IS NOT NULL " +
+                "AND reset_token_expiry < $1 AND id > $2 ORDER BY id LIMIT $3");
+        assertFalse(resetTokens.contains("Seq Scan"), resetTokens);
+    }
+
+    @Test
+    void directoryPagesSeekPastTheCursor() throws SQLException {
+        // The keyset page UserDirectoryRepository sends for the admin directory
+        String plan = explain(SEED_USERS, "SELECT id, email FROM users WHERE role = $1 AND (created_at, id) < ($2, $3) " +
+                "ORDER BY created_at DESC, id DESC LIMIT $4");
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertFalse(plan.contains("Sort"), plan);
+        assertTrue(plan.contains("Index Scan Backward using idx_users_created_at_id"), plan);
+    }
+
+    @Test
+    void userSearchUsesTheDictionaryAndSearchIndexes() throws SQLException {
+        // UserSearchRepository.matchWords: one word of the query against the dictionary
+        String words = explain("SELECT word FROM user_search_words WHERE word % $1 " +
+                "ORDER BY similarity(word, $1) DESC, word LIMIT $2");
+        assertTrue(words.contains("idx_user_search_words_trgm"), words);
+
+        // The filter UserSearchRepository.search sends for a term with both words and digits
+        String plan = explain(SEED_USERS, "SELECT id FROM users WHERE is_verified AND enabled AND role <> 'ADMIN' " +
+                "AND (user_search_vector(first_name, last_name, address) @@ CAST($1 AS tsquery) " +
+                "OR regexp_replace(phone_number, '[^0-9]', '', 'g') LIKE $2) LIMIT $3");
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertTrue(plan.contains("idx_users_search_vector"), plan);
+        assertTrue(plan.contains("idx_users_search_phone_trgm"), plan);
+    }
+
+    @Test
+    void autocompleteSeeksThePrefixIndexInOrder() throws SQLException {
+        // One branch of UserSearchRepository's autocomplete union
+        String plan = explain(SEED_USERS, "SELECT id FROM users WHERE lower(last_name) COLLATE \"C\" >= $1 " +
+                "AND lower(last_name) COLLATE \"C\" < $2 AND lower(last_name) COLLATE \"C\" LIKE $3 " +
+                "AND is_verified AND enabled AND role <> 'ADMIN' ORDER BY lower(last_name) COLLATE \"C\", id LIMIT $4");
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertFalse(plan.contains("Sort"), plan);
+        assertTrue(plan.contains("Index Scan using idx_users_last_name_prefix"), plan);
+        assertTrue(plan.contains("Index Cond"), plan);
+    }
+
+    @Test
+    void backgroundJobQueriesUseIndexes() throws SQLException {
+        assertIndexed(() -> emailOutboxRepository.lockDueBatch(LocalDateTime.now(), 50), null);
+        assertIndexed(() -> emailOutboxRepository.deleteFinishedBatch(LocalDateTime.now(), 1000), null);
+        assertIndexed(() -> pendingOtpRepository.deleteExpiredBatch(Instant.now(), 500), "idx_pending_otps_expires_at");
+
+        // IdempotencyKeyRepository.deleteExpiredBatch
+        String idempotencyKeys = explain("SELECT request_path, idempotency_key FROM idempotency_keys " +
+                "WHERE expires_at <= $1 LIMIT $2");
+        assertTrue(idempotencyKeys.contains("idx_idempotency_keys_expires_at"), idempotencyKeys);
+    }
+
+    @Test
+    void mediaAssetLookupsUseIndexes() throws SQLException {
+        assertIndexed(() -> mediaAssetRepository.findByDigest("0".repeat(64)), "uk_media_assets_digest_variant");
+        assertIndexed(() -> mediaAssetRepository.findByUrlForUpdate("https://example.com/a.jpg"), "idx_media_assets_url");
+    }
+
+    // Runs the repository call, then checks that none of its statements scans a table sequentially
+    private void assertIndexed(Runnable repositoryCall, String expectedIndex) throws SQLException {
+        RecordingStatementInspector.drain();
+        repositoryCall.run();
+        List<String> statements = RecordingStatementInspector.drain();
+        assertFalse(statements.isEmpty(), "repository call issued no SQL");
+
+        List<String> plans = new ArrayList<>();
+        for (String sql : statements) {
+            String plan = explain(toPositional(sql));
+            assertFalse(plan.contains("Seq Scan"), sql + "\n" + plan);
+            plans.add(plan);
+        }
+        if (expectedIndex != null) {
+            assertTrue(plans.stream().anyMatch(plan -> plan.contains(expectedIndex)),
+                    "expected " + expectedIndex + " in\n" + String.join("\n", plans));
+        }
+    }
+
+    private String explain(String sql) throws SQLException {
+        return explain(List.of(), sql);
+    }
+
+    // GENERIC_PLAN plans with unbound $n parameters, the same way a reused prepared statement would run.
+    // Setup statements run in the same transaction, which is rolled back afterwards.
+    private String explain(List<String> setup, String sql) throws SQLException {
+        // The simple query protocol sends $n through untouched instead of expecting bind values
+        String url = dataSource.unwrap(PGSimpleDataSource.class).getUrl();
+        Properties properties = new Properties();
+        properties.setProperty("user", "postgres");
+        properties.setProperty("preferQueryMode", "simple");
+        try (Connection connection = DriverManager.getConnection(url, properties);
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            try {
+                for (String setupSql : setup) {
+                    statement.execute(setupSql);
+                }
+                statement.execute("SET LOCAL enable_seqscan = off");
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = statement.executeQuery("EXPLAIN (GENERIC_PLAN) " + sql)) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    private static String toPositional(String sql) {
+        StringBuilder positional = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                positional.append('$').append(++parameter);
+            } else {
+                positional.append(c);
+            }
+        }
+        return positional.toString();
+    }
+}
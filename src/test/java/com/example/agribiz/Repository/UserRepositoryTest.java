@@ -0,0 +1,68 @@
+package com.example.agribiz.Repository;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void insertUnverifiedCreatesTheUserOnce() {
+        Optional<Long> id = userRepository.insertUnverified("Thabo", "Mokoena", "thabo@example.com", "hash", "FARMER");
+
+        assertTrue(id.isPresent());
+        User user = userRepository.findById(id.get()).orElseThrow();
+        assertEquals(Role.FARMER, user.getRole());
+        assertFalse(user.getIsVerified());
+        assertNotNull(user.getCreatedAt());
+
+        assertTrue(userRepository.insertUnverified("Other", "Person", "thabo@example.com", "hash", "BUYER").isEmpty());
+    }
+
+    @Test
+    void insertUnverifiedLetsExactlyOneConcurrentSignUpThrough() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Long>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return userRepository.insertUnverified("Lerato", "Thabane", "race@example.com", "hash", "BUYER");
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            for (Future<Optional<Long>> result : results) {
+                created += result.get().isPresent() ? 1 : 0;
+            }
+            assertEquals(1, created);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.agribiz.Repository;
+
+import com.example.agribiz.Config.HibernateCacheConfiguration;
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({HibernateCacheConfiguration.class, SchemaMigrationConfiguration.class, EmbeddedPostgresTestConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSecondLevelCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PendingOtpRepository pendingOtpRepository;
+
+    @Autowired
+    private MediaAssetRepository mediaAssetRepository;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void repeatLookupsByEmailNeverReachTheDatabase() {
+        userRepository.save(User.builder()
+                .firstName("Thabo")
+                .lastName("Mokoena")
+                .email("thabo@example.com")
+                .password("hash")
+                .isVerified(true)
+                .role(Role.FARMER)
+                .build());
+
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertTrue(userRepository.findByEmail("thabo@example.com").isPresent());
+        assertTrue(statistics.getPrepareStatementCount() > 0);
+
+        statistics.clear();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Thabo", userRepository.findByEmail("thabo@example.com").orElseThrow().getFirstName());
+        }
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(3, statistics.getNaturalIdCacheHitCount());
+        assertEquals(3, statistics.getSecondLevelCacheHitCount());
+
+        assertTrue(userRepository.findByEmail("nobody@example.com").isEmpty());
+    }
+
+    @Test
+    void nativeWritesToOtherTablesLeaveCachedUsersAlone() {
+        User user = userRepository.save(User.builder()
+                .firstName("Naledi")
+                .lastName("Dlamini")
+                .email("naledi@example.com")
+                .password("hash")
+                .isVerified(true)
+                .role(Role.FARMER)
+                .build());
+        entityManagerFactory.getCache().evictAll();
+        userRepository.findByEmail("naledi@example.com").orElseThrow();
+        assertTrue(entityManagerFactory.getCache().contains(User.class, user.getId()));
+
+        // Without a declared query space Hibernate cannot tell what these touched, so it drops every region
+        transactionTemplate.executeWithoutResult(status -> {
+            pendingOtpRepository.upsert("naledi@example.com", new byte[32], Instant.now().plusSeconds(600));
+            pendingOtpRepository.deleteExpiredBatch(Instant.now(), 100);
+            mediaAssetRepository.insertIfAbsent("0".repeat(64), "AVATAR", "/media/a.jpg", "a.jpg", 1L, Instant.now());
+            emailOutboxRepository.deleteFinishedBatch(LocalDateTime.now().minusDays(7), 100);
+            status.setRollbackOnly();
+        });
+
+        assertTrue(entityManagerFactory.getCache().contains(User.class, user.getId()));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertEquals("Naledi", userRepository.findByEmail("naledi@example.com").orElseThrow().getFirstName());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+}
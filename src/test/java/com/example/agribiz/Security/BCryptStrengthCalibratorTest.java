@@ -0,0 +1,68 @@
+package com.example.agribiz.Security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BCryptStrengthCalibratorTest {
+
+    // Reports a fixed hash time at the base cost instead of timing real hashes
+    static class StubbedCalibrator extends BCryptStrengthCalibrator {
+        final List<Integer> measured = new ArrayList<>();
+        final long baseNanos;
+
+        StubbedCalibrator(int strength, boolean calibrate, Duration target, int min, int max, Duration baseTime) {
+            super(strength, calibrate, target, min, max);
+            this.baseNanos = baseTime.toNanos();
+        }
+
+        @Override
+        long measure(int strength) {
+            measured.add(strength);
+            return baseNanos;
+        }
+    }
+
+    @Test
+    void usesTheConfiguredStrengthWithoutMeasuringByDefault() {
+        StubbedCalibrator calibrator = new StubbedCalibrator(10, false, Duration.ofMillis(250), 10, 16,
+                Duration.ofMillis(1));
+
+        assertEquals(10, calibrator.strength());
+        assertTrue(calibrator.measured.isEmpty());
+    }
+
+    @Test
+    void calibrationPicksTheHighestCostWithinTheTarget() {
+        // 20 ms at cost 10 doubles to 40, 80 and then 160 ms
+        StubbedCalibrator calibrator = new StubbedCalibrator(10, true, Duration.ofMillis(100), 10, 16,
+                Duration.ofMillis(20));
+
+        assertEquals(12, calibrator.strength());
+        assertEquals(List.of(10), calibrator.measured);
+    }
+
+    @Test
+    void calibrationStaysWithinTheConfiguredBounds() {
+        assertEquals(13, new StubbedCalibrator(10, true, Duration.ofMillis(250), 10, 13, Duration.ofMillis(1))
+                .strength());
+        assertEquals(10, new StubbedCalibrator(10, true, Duration.ofMillis(250), 10, 16, Duration.ofMillis(500))
+                .strength());
+    }
+
+    @Test
+    void rehashesOnlyWhenTheCostDiffersFromTheConfiguredOne() {
+        TargetStrengthBCryptPasswordEncoder encoder = new TargetStrengthBCryptPasswordEncoder(5);
+
+        assertFalse(encoder.upgradeEncoding(encoder.encode("Harvest2024")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("Harvest2024")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("Harvest2024")));
+        assertFalse(encoder.upgradeEncoding("not-a-bcrypt-hash"));
+        assertFalse(encoder.upgradeEncoding(null));
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.agribiz.Security;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class, IdempotencyKeyRepository.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyFilterTest {
+
+    private static final String REGISTER = "/api/v1/auth/register";
+    private static final String LOGIN = "/api/v1/auth/login";
+    private static final String VERIFY_EMAIL = "/api/v1/auth/verify-email";
+
+    @RestController
+    static class CountingController {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile HttpStatus status = HttpStatus.OK;
+
+        @PostMapping(REGISTER)
+        ResponseEntity<String> register(@RequestBody String body) {
+            return ResponseEntity.status(status)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("{\"call\":" + calls.incrementAndGet() + "}");
+        }
+
+        @PostMapping(LOGIN)
+        ResponseEntity<String> login(@RequestBody String body) {
+            return ResponseEntity.ok("{\"token\":\"jwt-" + calls.incrementAndGet() + "\"}");
+        }
+
+        @PostMapping(VERIFY_EMAIL)
+        ResponseEntity<String> verifyEmail(@RequestBody String body) {
+            return ResponseEntity.ok("{\"token\":\"jwt-" + calls.incrementAndGet() + "\"}");
+        }
+    }
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private CountingController controller;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys");
+        controller = new CountingController();
+        mockMvc = mockMvc("server-secret");
+    }
+
+    private MockMvc mockMvc(String secret) {
+        IdempotencyFilter filter = new IdempotencyFilter(idempotencyKeyRepository,
+                new ObjectMapper().registerModule(new JavaTimeModule()), true, Duration.ofHours(24),
+                Duration.ofMinutes(10), Duration.ofSeconds(60), secret);
+        return MockMvcBuilders.standaloneSetup(controller).addFilters(filter).build();
+    }
+
+    @Test
+    void replaysTheStoredResponseForARetry() throws Exception {
+        mockMvc.perform(register("key-1", "{\"email\":\"a@example.com\"}"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"call\":1}"))
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+
+        mockMvc.perform(register("key-1", "{\"email\":\"a@example.com\"}"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("{\"call\":1}"))
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+
+        assertEquals(1, controller.calls.get());
+    }
+
+    @Test
+    void replaysClientErrorsButRunsServerErrorsAgain() throws Exception {
+        controller.status = HttpStatus.BAD_REQUEST;
+        mockMvc.perform(register("key-2", "{}")).andExpect(status().isBadRequest());
+        mockMvc.perform(register("key-2", "{}")).andExpect(status().isBadRequest());
+        assertEquals(1, controller.calls.get());
+
+        controller.status = HttpStatus.INTERNAL_SERVER_ERROR;
+        mockMvc.perform(register("key-3", "{}")).andExpect(status().isInternalServerError());
+        controller.status = HttpStatus.OK;
+        mockMvc.perform(register("key-3", "{}"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"call\":3}"));
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentRequest() throws Exception {
+        mockMvc.perform(register("key-4", "{\"email\":\"a@example.com\"}")).andExpect(status().isOk());
+
+        mockMvc.perform(register("key-4", "{\"email\":\"b@example.com\"}"))
+                .andExpect(status().isUnprocessableEntity());
+        assertEquals(1, controller.calls.get());
+    }
+
+    @Test
+    void refusesARetryWhileTheFirstRequestIsRunning() throws Exception {
+        Instant now = Instant.now();
+        String body = "{\"email\":\"a@example.com\"}";
+        // A request with this key and body has been claimed but hasn't finished
+        mockMvc.perform(register("probe", body)).andExpect(status().isOk());
+        String hash = jdbcTemplate.queryForObject(
+                "SELECT request_hash FROM idempotency_keys WHERE idempotency_key = 'probe'", String.class);
+        idempotencyKeyRepository.claim(REGISTER, "key-5", hash, now, now.plusSeconds(3600), now.minusSeconds(60));
+
+        mockMvc.perform(register("key-5", body))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Retry-After", "1"));
+        assertEquals(1, controller.calls.get());
+
+        // Once the claim is older than the lock timeout, its node is presumed dead and a retry takes over
+        jdbcTemplate.update("UPDATE idempotency_keys SET created_at = created_at - interval '2 minutes' " +
+                "WHERE idempotency_key = 'key-5'");
+        mockMvc.perform(register("key-5", body)).andExpect(status().isOk());
+        assertEquals(2, controller.calls.get());
+    }
+
+    @Test
+    void leavesRequestsWithoutAKeyAlone() throws Exception {
+        mockMvc.perform(post(REGISTER).servletPath(REGISTER).contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post(REGISTER).servletPath(REGISTER).contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isOk());
+
+        assertEquals(2, controller.calls.get());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_keys", Integer.class));
+    }
+
+    @Test
+    void requestHashDependsOnTheServerSecret() throws Exception {
+        String body = "{\"email\":\"a@example.com\",\"password\":\"Secret123!\"}";
+        mockMvc.perform(register("key-6", body)).andExpect(status().isOk());
+        mockMvc("another-secret").perform(register("key-7", body)).andExpect(status().isOk());
+
+        assertNotEquals(
+                jdbcTemplate.queryForObject("SELECT request_hash FROM idempotency_keys WHERE idempotency_key = 'key-6'",
+                        String.class),
+                jdbcTemplate.queryForObject("SELECT request_hash FROM idempotency_keys WHERE idempotency_key = 'key-7'",
+                        String.class));
+    }
+
+    @Test
+    void neverStoresTokenBearingResponses() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post(LOGIN).servletPath(LOGIN).header(IdempotencyFilter.KEY_HEADER, "key-8")
+                            .contentType(MediaType.APPLICATION_JSON).content("{}"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+        }
+
+        assertEquals(2, controller.calls.get());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_keys", Integer.class));
+    }
+
+    @Test
+    void verifyEmailRetryGetsItsTokenFromAnEncryptedShortLivedRecord() throws Exception {
+        String body = "{\"email\":\"a@example.com\",\"otp\":\"123456\"}";
+        Instant before = Instant.now();
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post(VERIFY_EMAIL).servletPath(VERIFY_EMAIL).header(IdempotencyFilter.KEY_HEADER, "key-9")
+                            .contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isOk())
+                    .andExpect(content().json("{\"token\":\"jwt-1\"}"));
+        }
+        assertEquals(1, controller.calls.get());
+
+        byte[] stored = jdbcTemplate.queryForObject(
+                "SELECT response_body FROM idempotency_keys WHERE idempotency_key = 'key-9'", byte[].class);
+        assertFalse(new String(stored, StandardCharsets.ISO_8859_1).contains("jwt-1"));
+        Instant expiresAt = jdbcTemplate.queryForObject(
+                "SELECT expires_at FROM idempotency_keys WHERE idempotency_key = 'key-9'", Timestamp.class).toInstant();
+        assertTrue(expiresAt.isBefore(before.plus(Duration.ofMinutes(11))), expiresAt.toString());
+
+        // Moved under another key, the ciphertext no longer authenticates
+        jdbcTemplate.update("INSERT INTO idempotency_keys SELECT request_path, 'key-10', request_hash, response_status, " +
+                "content_type, response_body, created_at, expires_at FROM idempotency_keys WHERE idempotency_key = 'key-9'");
+        assertThrows(Exception.class, () -> mockMvc.perform(post(VERIFY_EMAIL).servletPath(VERIFY_EMAIL)
+                .header(IdempotencyFilter.KEY_HEADER, "key-10").contentType(MediaType.APPLICATION_JSON).content(body)));
+    }
+
+    @Test
+    void rejectsMalformedKeys() throws Exception {
+        mockMvc.perform(register("has space", "{}")).andExpect(status().isBadRequest());
+        assertEquals(0, controller.calls.get());
+    }
+
+    private static MockHttpServletRequestBuilder register(String key, String body) {
+        return post(REGISTER)
+                .servletPath(REGISTER)
+                .header(IdempotencyFilter.KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+    }
+}
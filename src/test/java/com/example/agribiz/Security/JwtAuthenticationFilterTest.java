@@ -0,0 +1,203 @@
+package com.example.agribiz.Security;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import com.example.agribiz.Repository.UserRepository;
+import com.example.agribiz.Service.User.CredentialVersionService;
+import com.example.agribiz.Service.User.CustomUserDetailsService;
+import com.example.agribiz.Service.User.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        // Rows are changed behind Hibernate's back, so every lookup has to reach the database
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "jwt.secret=NzJlM2I1ZTQ5ZmE2NGQ4Y2E5YjE4ZjU0YzI3ZDBlNjFhOWIzYzVkNGU3ZjgwOTFhMmIzYzRkNWU2Zjc4OTBh",
+        "jwt.expiration=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class, JwtService.class,
+        CredentialVersionService.class, CustomUserDetailsService.class, JwtAuthenticationFilterTest.Metrics.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JwtAuthenticationFilterTest {
+
+    private static final String EMAIL = "ama@example.com";
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private CredentialVersionService credentialVersionService;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_verified, role, enabled, " +
+                "account_non_expired, account_non_locked, credentials_non_expired, credential_version, created_at) " +
+                "VALUES ('Ama', 'Owusu', ?, 'hash', true, 'FARMER', true, true, true, true, 0, now())", EMAIL);
+        credentialVersionService.evictAll();
+        userDetailsService.evictAll();
+
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, credentialVersionService);
+        ReflectionTestUtils.setField(filter, "claimsOnlyAuthentication", true);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validTokenAuthenticatesFromItsClaims() throws Exception {
+        User user = storedUser();
+
+        Authentication authentication = authenticate(jwtService.generateToken(user));
+
+        ClaimsPrincipal principal = assertInstanceOf(ClaimsPrincipal.class, authentication.getPrincipal());
+        assertEquals(new ClaimsPrincipal(user.getId(), EMAIL, Role.FARMER), principal);
+        assertEquals(List.of("ROLE_FARMER"),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    @Test
+    void tokenIssuedBeforeAPasswordChangeIsRevoked() throws Exception {
+        String oldToken = jwtService.generateToken(storedUser());
+        assertInstanceOf(ClaimsPrincipal.class, authenticate(oldToken).getPrincipal());
+
+        changePassword();
+
+        assertNull(authenticate(oldToken));
+        assertInstanceOf(ClaimsPrincipal.class, authenticate(jwtService.generateToken(storedUser())).getPrincipal());
+    }
+
+    @Test
+    void disabledUserIsRejected() throws Exception {
+        String token = jwtService.generateToken(storedUser());
+
+        updateUser("enabled = false");
+
+        assertNull(authenticate(token));
+    }
+
+    @Test
+    void lockedUserIsRejected() throws Exception {
+        String token = jwtService.generateToken(storedUser());
+
+        updateUser("account_non_locked = false");
+
+        assertNull(authenticate(token));
+    }
+
+    @Test
+    void tokenWithoutIdentityClaimsFallsBackToLoadingTheUser() throws Exception {
+        String token = jwtService.generateToken(Map.of(), storedUser());
+
+        Authentication authentication = authenticate(token);
+
+        User principal = assertInstanceOf(User.class, authentication.getPrincipal());
+        assertEquals(EMAIL, principal.getEmail());
+    }
+
+    @Test
+    void fallbackRejectsDisabledAndLockedUsersToo() throws Exception {
+        String token = jwtService.generateToken(Map.of(), storedUser());
+
+        updateUser("enabled = false");
+        assertNull(authenticate(token));
+
+        updateUser("enabled = true, account_non_locked = false");
+        assertNull(authenticate(token));
+    }
+
+    @Test
+    void fallbackRejectsATokenFromBeforeAPasswordChange() throws Exception {
+        String oldToken = jwtService.generateToken(storedUser());
+        ReflectionTestUtils.setField(filter, "claimsOnlyAuthentication", false);
+
+        changePassword();
+
+        assertNull(authenticate(oldToken));
+    }
+
+    @Test
+    void invalidTokenLeavesTheRequestAnonymous() throws Exception {
+        String token = jwtService.generateToken(storedUser());
+
+        assertNull(authenticate(token.substring(0, token.length() - 4) + "abcd"));
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/me");
+        request.setServletPath("/api/v1/users/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        Authentication[] seen = new Authentication[1];
+        filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> seen[0] = SecurityContextHolder.getContext().getAuthentication());
+        return seen[0];
+    }
+
+    private User storedUser() {
+        return userRepository.findByEmail(EMAIL).orElseThrow();
+    }
+
+    // What UserService.changePassword leaves behind once UserCacheInvalidator has run
+    private void changePassword() {
+        updateUser("password = 'new-hash', credential_version = credential_version + 1");
+    }
+
+    private void updateUser(String assignments) {
+        jdbcTemplate.update("UPDATE users SET " + assignments + " WHERE email = ?", EMAIL);
+        credentialVersionService.evictAll();
+        userDetailsService.evict(EMAIL);
+    }
+}
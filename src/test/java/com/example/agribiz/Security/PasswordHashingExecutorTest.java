@@ -0,0 +1,147 @@
+package com.example.agribiz.Security;
+
+import com.example.agribiz.Exception.GlobalExceptionHandler;
+import com.example.agribiz.Exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PasswordHashingExecutorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHashingExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void shedsRequestsOnceTheQueueIsFull() throws Exception {
+        executor = new PasswordHashingExecutor(meterRegistry, 1, 1, Duration.ofSeconds(5));
+        saturate();
+
+        long start = System.nanoTime();
+        assertThrows(ServiceOverloadedException.class, () -> executor.execute("encode", () -> "hash"));
+
+        // Shed straight away instead of after max-wait
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, rejected());
+    }
+
+    @Test
+    void givesUpAfterMaxWaitAndNeverRunsTheAbandonedHash() throws Exception {
+        executor = new PasswordHashingExecutor(meterRegistry, 1, 2, Duration.ofMillis(200));
+        block();
+        AtomicBoolean ran = new AtomicBoolean();
+
+        assertThrows(ServiceOverloadedException.class, () -> executor.execute("matches", () -> ran.getAndSet(true)));
+        assertEquals(0.0, meterRegistry.get("agribiz.password.hashing.queue.depth").gauge().value());
+
+        release.countDown();
+        // One worker runs tasks in order, so anything still queued would have run before this
+        assertEquals("after", executor.execute("encode", () -> "after"));
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void rethrowsWhatTheHashThrows() {
+        executor = new PasswordHashingExecutor(meterRegistry, 1, 1, Duration.ofSeconds(5));
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> executor.execute("encode", () -> {
+                    throw new IllegalArgumentException("rawPassword cannot be null");
+                }));
+        assertEquals("rawPassword cannot be null", thrown.getMessage());
+    }
+
+    @RestController
+    static class LoginController {
+        final DaoAuthenticationProvider provider;
+
+        LoginController(DaoAuthenticationProvider provider) {
+            this.provider = provider;
+        }
+
+        @PostMapping("/api/v1/auth/login")
+        ResponseEntity<Void> login() {
+            provider.authenticate(new UsernamePasswordAuthenticationToken("ama@example.com", "secret"));
+            return ResponseEntity.ok().build();
+        }
+    }
+
+    @Test
+    void overloadedLoginIsAnsweredWith503() throws Exception {
+        executor = new PasswordHashingExecutor(meterRegistry, 1, 1, Duration.ofSeconds(5));
+        @SuppressWarnings("deprecation")
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(NoOpPasswordEncoder.getInstance(), executor);
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(new InMemoryUserDetailsManager(
+                User.withUsername("ama@example.com").password("secret").roles("FARMER").build()));
+        provider.setPasswordEncoder(encoder);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new LoginController(provider))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        mockMvc.perform(post("/api/v1/auth/login")).andExpect(status().isOk());
+        saturate();
+
+        // Must not be mistaken for a wrong password
+        mockMvc.perform(post("/api/v1/auth/login"))
+                .andExpect(status().is(HttpStatus.SERVICE_UNAVAILABLE.value()))
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    // Occupies the only worker and then the only queue slot
+    private void saturate() throws InterruptedException {
+        block();
+        CompletableFuture.runAsync(() -> executor.execute("encode", () -> "queued"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("agribiz.password.hashing.queue.depth").gauge().value() < 1) {
+            assertTrue(System.nanoTime() < deadline, "task was never queued");
+            Thread.sleep(5);
+        }
+    }
+
+    private void block() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> executor.execute("encode", () -> {
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS) ? "released" : "timed out";
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private double rejected() {
+        return meterRegistry.get("agribiz.password.hashing.rejected").counter().count();
+    }
+}
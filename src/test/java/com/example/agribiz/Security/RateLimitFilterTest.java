@@ -0,0 +1,156 @@
+package com.example.agribiz.Security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private static final String LOGIN = "/api/v1/auth/login";
+
+    private RateLimitProperties properties;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setEndpoints(Map.of("login",
+                new RateLimitProperties.EndpointLimit(LOGIN, 2, Duration.ofMinutes(1), 3, Duration.ofMinutes(1))));
+        properties.setTrustedProxies(List.of("10.0.0.0/8"));
+        filter = newFilter();
+    }
+
+    @Test
+    void throttlesAnIpOnceItsBurstIsUsed() throws Exception {
+        assertEquals(200, login("203.0.113.5", null, "a@example.com").getStatus());
+        assertEquals(200, login("203.0.113.5", null, "b@example.com").getStatus());
+
+        MockHttpServletResponse rejected = login("203.0.113.5", null, "c@example.com");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("60", rejected.getHeader("Retry-After"));
+        assertEquals(200, login("203.0.113.6", null, "c@example.com").getStatus());
+    }
+
+    @Test
+    void throttlesAnAccountAcrossIps() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, login("203.0.113." + i, null, "ama@example.com").getStatus());
+        }
+
+        assertEquals(429, login("203.0.113.9", null, " AMA@example.com").getStatus());
+    }
+
+    @Test
+    void limitsTheClientBehindATrustedProxy() throws Exception {
+        assertEquals(200, login("10.0.0.1", "198.51.100.7, 10.0.0.2", "a@example.com").getStatus());
+        assertEquals(200, login("10.0.0.1", "198.51.100.7", "b@example.com").getStatus());
+        assertEquals(429, login("10.0.0.3", "198.51.100.7", "c@example.com").getStatus());
+
+        // Another client behind the same load balancer has its own bucket
+        assertEquals(200, login("10.0.0.1", "198.51.100.8", "d@example.com").getStatus());
+    }
+
+    @Test
+    void ignoresForwardedForFromAnUntrustedClient() throws Exception {
+        assertEquals(200, login("203.0.113.5", "198.51.100.1", "a@example.com").getStatus());
+        assertEquals(200, login("203.0.113.5", "198.51.100.2", "b@example.com").getStatus());
+
+        assertEquals(429, login("203.0.113.5", "198.51.100.3", "c@example.com").getStatus());
+    }
+
+    @Test
+    void onlyTrustsTheHopAppendedByOurProxy() {
+        MockHttpServletRequest request = request("10.0.0.1", "1.2.3.4, not-an-ip, 198.51.100.7");
+
+        assertEquals("198.51.100.7", filter.clientIp(request));
+        assertEquals("not-an-ip", filter.clientIp(request("10.0.0.1", "1.2.3.4, not-an-ip")));
+    }
+
+    @Test
+    void passesTheBodyOnForBlockingAndAsyncReads() throws Exception {
+        String body = "{\"email\":\"ama@example.com\",\"password\":\"secret\"}";
+        MockHttpServletRequest request = request("203.0.113.5", null);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        ServletInputStream input = chain.getRequest().getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        boolean[] allRead = new boolean[1];
+        input.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                while (input.isReady() && !input.isFinished()) {
+                    read.write(input.read());
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allRead[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fail(t);
+            }
+        });
+        assertTrue(allRead[0]);
+        assertEquals(body, read.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void refusesBodiesItWouldOtherwiseCutShort() throws Exception {
+        MockHttpServletRequest request = request("203.0.113.5", null);
+        request.setContent(("{\"email\":\"ama@example.com\",\"bio\":\"" + "x".repeat(16 * 1024) + "\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(413, response.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    private MockHttpServletResponse login(String remoteAddr, String forwardedFor, String email) throws Exception {
+        MockHttpServletRequest request = request(remoteAddr, forwardedFor);
+        request.setContent(("{\"email\":\"" + email + "\"}").getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", LOGIN);
+        request.setServletPath(LOGIN);
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+
+    private RateLimitFilter newFilter() {
+        RateLimitFilter rateLimitFilter = new RateLimitFilter(properties, new RateLimiter(properties),
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+        rateLimitFilter.init();
+        return rateLimitFilter;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.agribiz.Security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void allowsABurstUpToCapacityThenReportsTheWait() {
+        TokenBucket bucket = new TokenBucket(0);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryConsume(0, 3, SECOND));
+        }
+        assertEquals(SECOND, bucket.tryConsume(0, 3, SECOND));
+        assertEquals(SECOND / 4, bucket.tryConsume(3 * SECOND / 4, 3, SECOND));
+    }
+
+    @Test
+    void earnsBackOneTokenPerRefillInterval() {
+        TokenBucket bucket = new TokenBucket(0);
+        for (int i = 0; i < 3; i++) {
+            bucket.tryConsume(0, 3, SECOND);
+        }
+
+        assertEquals(0, bucket.tryConsume(SECOND, 3, SECOND));
+        assertEquals(SECOND, bucket.tryConsume(SECOND, 3, SECOND));
+    }
+
+    @Test
+    void idleTimeDoesNotBankMoreThanCapacity() {
+        TokenBucket bucket = new TokenBucket(0);
+        long later = 100 * SECOND;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryConsume(later, 3, SECOND));
+        }
+        assertEquals(SECOND, bucket.tryConsume(later, 3, SECOND));
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanCapacity() throws Exception {
+        TokenBucket bucket = new TokenBucket(0);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> granted = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                granted.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < 1_000; i++) {
+                        if (bucket.tryConsume(0, 100, SECOND) == 0) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+
+            int total = 0;
+            for (Future<Integer> future : granted) {
+                total += future.get();
+            }
+            assertEquals(100, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
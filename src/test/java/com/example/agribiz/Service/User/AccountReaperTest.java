@@ -0,0 +1,160 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.HibernateCacheConfiguration;
+import com.example.agribiz.Config.ReplicaRoutingProperties;
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import com.example.agribiz.Repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "app.reaper.chunk-size=2",
+        "app.reaper.max-rows-per-second=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class, HibernateCacheConfiguration.class,
+        AccountReaper.class, UserCacheInvalidator.class, CustomUserDetailsService.class,
+        CredentialVersionService.class, ReplicaRoutingProperties.class, AccountReaperTest.Metrics.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AccountReaperTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private AccountReaper accountReaper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        meterRegistry.clear();
+    }
+
+    @Test
+    void deletesOnlyStaleUnverifiedAccountsAcrossChunks() {
+        LocalDateTime old = LocalDateTime.now().minusDays(30);
+        for (int i = 0; i < 5; i++) {
+            // Identical timestamps make the keyset fall back to the id tie-breaker
+            save("stale" + i + "@example.com", false, i < 3 ? old : old.plusHours(i));
+        }
+        save("recent@example.com", false, LocalDateTime.now().minusDays(1));
+        save("verified@example.com", true, old);
+
+        accountReaper.reap();
+
+        assertEquals(2, userRepository.count());
+        assertTrue(userRepository.existsByEmail("recent@example.com"));
+        assertTrue(userRepository.existsByEmail("verified@example.com"));
+        assertEquals(5.0, meterRegistry.get("agribiz.reaper.rows").tag("action", "unverified_deleted")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void reapedEmailCanRegisterAgain() {
+        save("again@example.com", false, LocalDateTime.now().minusDays(30));
+        // Caches the natural-id resolution, which must not keep pointing at the deleted row
+        assertTrue(userRepository.findByEmail("again@example.com").isPresent());
+
+        accountReaper.reap();
+        assertTrue(userRepository.findByEmail("again@example.com").isEmpty());
+
+        User fresh = save("again@example.com", false, LocalDateTime.now());
+        assertEquals(fresh.getId(), userRepository.findByEmail("again@example.com").orElseThrow().getId());
+    }
+
+    @Test
+    void clearsOnlyExpiredResetTokens() {
+        for (int i = 0; i < 3; i++) {
+            User user = save("expired" + i + "@example.com", true, LocalDateTime.now());
+            setResetToken(user, "expired-" + i, LocalDateTime.now().minusHours(1));
+        }
+        User pending = save("pending@example.com", true, LocalDateTime.now());
+        setResetToken(pending, "pending", LocalDateTime.now().plusHours(1));
+
+        accountReaper.reap();
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM users WHERE reset_token IS NOT NULL", Integer.class));
+        assertEquals("pending", userRepository.findByEmail("pending@example.com").orElseThrow().getResetToken());
+        assertNull(userRepository.findByEmail("expired0@example.com").orElseThrow().getResetToken());
+        assertEquals(3.0, meterRegistry.get("agribiz.reaper.rows").tag("action", "reset_token_cleared")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void skipsWhileAnotherNodeHoldsTheLock() throws Exception {
+        save("stale@example.com", false, LocalDateTime.now().minusDays(30));
+
+        try (Connection otherNode = dataSource.getConnection();
+             PreparedStatement lock = otherNode.prepareStatement("SELECT pg_advisory_lock(?)")) {
+            lock.setLong(1, AccountReaper.LEADER_LOCK_KEY);
+            lock.execute();
+
+            accountReaper.reap();
+            assertTrue(userRepository.existsByEmail("stale@example.com"));
+        }
+
+        accountReaper.reap();
+        assertFalse(userRepository.existsByEmail("stale@example.com"));
+    }
+
+    private User save(String email, boolean verified, LocalDateTime createdAt) {
+        User user = userRepository.save(User.builder()
+                .firstName("Naledi")
+                .lastName("Dlamini")
+                .email(email)
+                .password("hash")
+                .isVerified(verified)
+                .role(Role.FARMER)
+                .build());
+        jdbcTemplate.update("UPDATE users SET created_at = ? WHERE id = ?", Timestamp.valueOf(createdAt), user.getId());
+        return user;
+    }
+
+    private void setResetToken(User user, String token, LocalDateTime expiry) {
+        jdbcTemplate.update("UPDATE users SET reset_token = ?, reset_token_expiry = ? WHERE id = ?",
+                token, Timestamp.valueOf(expiry), user.getId());
+    }
+}
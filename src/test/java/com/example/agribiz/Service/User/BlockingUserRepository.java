@@ -0,0 +1,47 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Model.User;
+import com.example.agribiz.Repository.UserRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Answers the two lookups the user caches make from in-memory rows, and can hold a lookup open after it has
+// read its row so a test can change the row and evict in the meantime
+final class BlockingUserRepository {
+
+    final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+    final AtomicInteger queries = new AtomicInteger();
+    volatile CountDownLatch read = new CountDownLatch(0);
+    volatile CountDownLatch release = new CountDownLatch(0);
+
+    final UserRepository repository = (UserRepository) Proxy.newProxyInstance(
+            UserRepository.class.getClassLoader(), new Class<?>[]{UserRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findByEmail" -> hold(Optional.ofNullable(users.get((String) args[0])));
+                case "findActiveCredentialVersion" -> hold(users.values().stream()
+                        .filter(user -> user.getId().equals(args[0]) && user.isEnabled())
+                        .map(User::getCredentialVersion)
+                        .findFirst());
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+
+    // The next lookup signals once it has read, then waits for release
+    void holdNextLookup() {
+        read = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+    }
+
+    private <T> T hold(T result) throws InterruptedException {
+        queries.incrementAndGet();
+        read.countDown();
+        if (!release.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("lookup was never released");
+        }
+        return result;
+    }
+}
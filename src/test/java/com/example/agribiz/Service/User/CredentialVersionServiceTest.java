@@ -0,0 +1,69 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialVersionServiceTest {
+
+    private final BlockingUserRepository users = new BlockingUserRepository();
+    private CredentialVersionService credentialVersionService;
+
+    @BeforeEach
+    void setUp() {
+        credentialVersionService = new CredentialVersionService(users.repository);
+        ReflectionTestUtils.setField(credentialVersionService, "revocationCacheTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(credentialVersionService, "revocationCacheMaxSize", 100L);
+        credentialVersionService.init();
+        users.users.put("ama@example.com", user(0L, true));
+    }
+
+    @Test
+    void loadThatRacesAnEvictionIsNotCached() throws Exception {
+        users.holdNextLookup();
+        CompletableFuture<Boolean> racing = CompletableFuture.supplyAsync(() -> credentialVersionService.isCurrent(1L, 0));
+        assertTrue(users.read.await(5, TimeUnit.SECONDS));
+
+        // A password change bumps the version and evicts while the lookup above still holds version 0
+        users.users.put("ama@example.com", user(1L, true));
+        credentialVersionService.evict(1L);
+        users.release.countDown();
+
+        assertTrue(racing.get(5, TimeUnit.SECONDS));
+        assertFalse(credentialVersionService.isCurrent(1L, 0));
+        assertTrue(credentialVersionService.isCurrent(1L, 1));
+    }
+
+    @Test
+    void answersFromTheCacheUntilEvicted() {
+        assertTrue(credentialVersionService.isCurrent(1L, 0));
+        users.users.put("ama@example.com", user(0L, false));
+
+        assertTrue(credentialVersionService.isCurrent(1L, 0));
+        assertEquals(1, users.queries.get());
+
+        credentialVersionService.evict(1L);
+        assertFalse(credentialVersionService.isCurrent(1L, 0));
+    }
+
+    private static User user(long credentialVersion, boolean enabled) {
+        return User.builder()
+                .id(1L)
+                .firstName("Ama")
+                .lastName("Owusu")
+                .email("ama@example.com")
+                .password("hash")
+                .role(Role.FARMER)
+                .credentialVersion(credentialVersion)
+                .enabled(enabled)
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomUserDetailsServiceTest {
+
+    private static final String EMAIL = "ama@example.com";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BlockingUserRepository users = new BlockingUserRepository();
+    private CustomUserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsService = new CustomUserDetailsService(users.repository, meterRegistry);
+        ReflectionTestUtils.setField(userDetailsService, "maxSize", 100L);
+        ReflectionTestUtils.setField(userDetailsService, "ttl", Duration.ofMinutes(5));
+        userDetailsService.init();
+        users.users.put(EMAIL, user("old-hash"));
+    }
+
+    @Test
+    void loadThatRacesAnEvictionIsNotCached() throws Exception {
+        users.holdNextLookup();
+        CompletableFuture<UserDetails> racing = CompletableFuture.supplyAsync(
+                () -> userDetailsService.loadUserByUsername(EMAIL));
+        assertTrue(users.read.await(5, TimeUnit.SECONDS));
+
+        // The password changes and the writer evicts while the lookup above still holds the old row
+        users.users.put(EMAIL, user("new-hash"));
+        userDetailsService.evict(EMAIL);
+        users.release.countDown();
+
+        assertEquals("old-hash", racing.get(5, TimeUnit.SECONDS).getPassword());
+        assertEquals("new-hash", userDetailsService.loadUserByUsername(EMAIL).getPassword());
+        assertEquals(2, users.queries.get());
+    }
+
+    @Test
+    void concurrentMissesShareOneQuery() throws Exception {
+        users.holdNextLookup();
+        CompletableFuture<UserDetails> first = CompletableFuture.supplyAsync(
+                () -> userDetailsService.loadUserByUsername(EMAIL));
+        assertTrue(users.read.await(5, TimeUnit.SECONDS));
+        CompletableFuture<UserDetails> second = CompletableFuture.supplyAsync(
+                () -> userDetailsService.loadUserByUsername(EMAIL));
+        awaitHits(1);
+        users.release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, users.queries.get());
+    }
+
+    @Test
+    void unknownUserIsNotCached() {
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("kofi@example.com"));
+
+        users.users.put("kofi@example.com", user("hash"));
+
+        assertEquals("hash", userDetailsService.loadUserByUsername("kofi@example.com").getPassword());
+    }
+
+    // The second caller has found the first one's load in the cache and is waiting on it
+    private void awaitHits(double hits) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("cache.gets").tags("cache", "userDetails", "result", "hit")
+                .functionCounter().count() < hits) {
+            assertTrue(System.nanoTime() < deadline, "second caller never reached the cache");
+            Thread.sleep(5);
+        }
+    }
+
+    private static User user(String password) {
+        return User.builder()
+                .id(1L)
+                .firstName("Ama")
+                .lastName("Owusu")
+                .email(EMAIL)
+                .password(password)
+                .role(Role.FARMER)
+                .build();
+    }
+}
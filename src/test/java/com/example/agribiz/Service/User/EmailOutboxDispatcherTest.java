@@ -0,0 +1,232 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.NoSuchProviderException;
+import jakarta.mail.Provider;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.mail.username=noreply@agribiz.example",
+        "app.mail.outbox.retention=7d"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class, EmailOutboxDispatcher.class,
+        EmailOutboxDispatcherTest.Mail.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailOutboxDispatcherTest {
+
+    // Stands in for the SMTP transport and records what the outbox looked like while a message was being sent.
+    // Jakarta Mail instantiates it reflectively, so its state is static.
+    public static class RecordingTransport extends Transport {
+        static final List<String> recipients = new ArrayList<>();
+        static final List<String> statusesWhileSending = new ArrayList<>();
+        static boolean transactionActiveWhileSending;
+        static boolean failConnect;
+        static boolean failClose;
+        // The connection drops while sending the message with this index
+        static int dropAt = -1;
+        static JdbcTemplate jdbcTemplate;
+
+        public RecordingTransport(Session session, URLName urlname) {
+            super(session, urlname);
+        }
+
+        static void reset() {
+            recipients.clear();
+            statusesWhileSending.clear();
+            transactionActiveWhileSending = false;
+            failConnect = false;
+            failClose = false;
+            dropAt = -1;
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password)
+                throws MessagingException {
+            if (failConnect) {
+                throw new MessagingException("Connection refused");
+            }
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+            transactionActiveWhileSending |= TransactionSynchronizationManager.isActualTransactionActive();
+            statusesWhileSending.addAll(jdbcTemplate.queryForList("SELECT status FROM email_outbox", String.class));
+            if (recipients.size() == dropAt) {
+                setConnected(false);
+                throw new MessagingException("Connection reset");
+            }
+            recipients.add(addresses[0].toString());
+        }
+
+        @Override
+        public synchronized void close() throws MessagingException {
+            super.close();
+            if (failClose) {
+                throw new MessagingException("Connection reset during QUIT");
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class Mail {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JavaMailSenderImpl mailSender(JdbcTemplate jdbcTemplate) throws NoSuchProviderException {
+            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            mailSender.getSession().setProvider(new Provider(Provider.Type.TRANSPORT, "smtp",
+                    RecordingTransport.class.getName(), "AgriBiz", "test"));
+            RecordingTransport.jdbcTemplate = jdbcTemplate;
+            return mailSender;
+        }
+    }
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM email_outbox");
+        RecordingTransport.reset();
+    }
+
+    @Test
+    void sendsOutsideATransactionAndDropsTheBodyOnceSent() {
+        long id = enqueue("ama@example.com", "PENDING", LocalDateTime.now().minusSeconds(1), LocalDateTime.now());
+
+        dispatcher.dispatch();
+
+        assertEquals(List.of("ama@example.com"), RecordingTransport.recipients);
+        assertFalse(RecordingTransport.transactionActiveWhileSending);
+        assertEquals(List.of("SENDING"), RecordingTransport.statusesWhileSending);
+        Map<String, Object> row = row(id);
+        assertEquals("SENT", row.get("status"));
+        assertNull(row.get("body"));
+        assertNotNull(row.get("sent_at"));
+    }
+
+    @Test
+    void failedSendGoesBackToPendingWithItsBody() {
+        long id = enqueue("ama@example.com", "PENDING", LocalDateTime.now().minusSeconds(1), LocalDateTime.now());
+        RecordingTransport.failConnect = true;
+
+        dispatcher.dispatch();
+
+        Map<String, Object> row = row(id);
+        assertEquals("PENDING", row.get("status"));
+        assertEquals(1, row.get("attempts"));
+        assertEquals("Your code is 123456", row.get("body"));
+        assertTrue(((Timestamp) row.get("next_attempt_at")).toLocalDateTime().isAfter(LocalDateTime.now()));
+    }
+
+    @Test
+    void onlyMessagesTheServerNeverAcceptedAreRetried() {
+        LocalDateTime due = LocalDateTime.now().minusSeconds(1);
+        long delivered = enqueue("ama@example.com", "PENDING", due, LocalDateTime.now());
+        long dropped = enqueue("kofi@example.com", "PENDING", due, LocalDateTime.now());
+        long unsent = enqueue("esi@example.com", "PENDING", due, LocalDateTime.now());
+        RecordingTransport.dropAt = 1;
+        RecordingTransport.failClose = true;
+
+        dispatcher.dispatch();
+
+        assertEquals(List.of("ama@example.com"), RecordingTransport.recipients);
+        assertEquals("SENT", row(delivered).get("status"));
+        for (long id : new long[]{dropped, unsent}) {
+            Map<String, Object> row = row(id);
+            assertEquals("PENDING", row.get("status"));
+            assertEquals(1, row.get("attempts"));
+            assertEquals("Your code is 123456", row.get("body"));
+        }
+    }
+
+    @Test
+    void failureToCloseAfterSendingDoesNotResendTheBatch() {
+        LocalDateTime due = LocalDateTime.now().minusSeconds(1);
+        long first = enqueue("ama@example.com", "PENDING", due, LocalDateTime.now());
+        long second = enqueue("kofi@example.com", "PENDING", due, LocalDateTime.now());
+        RecordingTransport.failClose = true;
+
+        dispatcher.dispatch();
+
+        assertEquals("SENT", row(first).get("status"));
+        assertEquals("SENT", row(second).get("status"));
+    }
+
+    @Test
+    void claimIsOnlyTakenOverOnceItsLeaseRunsOut() {
+        enqueue("held@example.com", "SENDING", LocalDateTime.now().plusMinutes(4), LocalDateTime.now());
+        long abandoned = enqueue("abandoned@example.com", "SENDING", LocalDateTime.now().minusSeconds(1),
+                LocalDateTime.now());
+
+        dispatcher.dispatch();
+
+        assertEquals(List.of("abandoned@example.com"), RecordingTransport.recipients);
+        assertEquals("SENT", row(abandoned).get("status"));
+    }
+
+    @Test
+    void purgeDeletesFinishedMessagesPastTheRetention() {
+        LocalDateTime old = LocalDateTime.now().minusDays(8);
+        enqueue("sent@example.com", "SENT", old, old);
+        enqueue("dead@example.com", "DEAD", old, old);
+        long recent = enqueue("recent@example.com", "SENT", old, LocalDateTime.now().minusDays(1));
+        long pending = enqueue("pending@example.com", "PENDING", LocalDateTime.now().plusHours(1), old);
+
+        dispatcher.purgeFinished();
+
+        assertEquals(List.of(recent, pending),
+                jdbcTemplate.queryForList("SELECT id FROM email_outbox ORDER BY id", Long.class));
+    }
+
+    private long enqueue(String recipient, String status, LocalDateTime nextAttemptAt, LocalDateTime createdAt) {
+        return jdbcTemplate.queryForObject("INSERT INTO email_outbox (recipient, subject, body, status, attempts, " +
+                        "next_attempt_at, created_at) VALUES (?, 'Verify Your Email', 'Your code is 123456', ?, 0, ?, ?) " +
+                        "RETURNING id", Long.class, recipient, status, Timestamp.valueOf(nextAttemptAt),
+                Timestamp.valueOf(createdAt));
+    }
+
+    private Map<String, Object> row(long id) {
+        return jdbcTemplate.queryForMap("SELECT * FROM email_outbox WHERE id = ?", id);
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.Dto.Request.RegisterRequest;
+import com.example.agribiz.Dto.Response.ImportRowError;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import com.example.agribiz.Repository.UserRepository;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "app.import.batch-size=2",
+        "app.name=AgriBiz",
+        "app.frontend.url=http://localhost:3000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class,
+        FarmerImportService.class, EmailService.class, FarmerImportServiceTest.Beans.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FarmerImportServiceTest {
+
+    @TestConfiguration
+    static class Beans {
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+
+        @Bean
+        LocalValidatorFactoryBean validator() {
+            return new LocalValidatorFactoryBean();
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Autowired
+    private FarmerImportService farmerImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM email_outbox");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void importsValidRowsAndReportsTheRest() throws Exception {
+        userRepository.save(User.builder()
+                .firstName("Existing")
+                .lastName("Member")
+                .email("existing@example.com")
+                .password("hash")
+                .isVerified(true)
+                .role(Role.FARMER)
+                .build());
+
+        FarmerImportJob job = runImport("\uFEFFEmail,First Name,last_name,Password,Village\r\n"
+                + "thabo@example.com,Thabo,Mokoena,Secret123,Ha Foso\r\n"
+                + "\"lerato@example.com\",\"Lerato, Jr\",Nthati,Secret123,\"Line one\nline two\"\r\n"
+                + "\r\n"
+                + "existing@example.com,Existing,Member,Secret123,\r\n"
+                + "weak@example.com,Weak,Password,short,\r\n"
+                + "thabo@example.com,Thabo,Again,Secret123,\r\n"
+                + "not-an-email,No,Email,Secret123,\r\n"
+                + "palesa@example.com,Palesa,Molefe,Secret123");
+
+        assertEquals(UploadStatus.COMPLETED, job.getStatus(), job.getError());
+        assertEquals(7, job.getRowsProcessed().get());
+        assertEquals(3, job.getImported().get());
+        assertEquals(1, job.getAlreadyRegistered().get());
+        assertEquals(3, job.getFailed().get());
+
+        List<ImportRowError> errors = job.getErrors();
+        assertEquals(List.of(7L, 8L, 9L), errors.stream().map(ImportRowError::getLine).toList());
+        assertEquals("weak@example.com", errors.get(0).getEmail());
+        assertTrue(errors.get(1).getMessage().contains("more than once"));
+        assertEquals("Email should be valid", errors.get(2).getMessage());
+
+        User lerato = userRepository.findByEmail("lerato@example.com").orElseThrow();
+        assertEquals("Lerato, Jr", lerato.getFirstName());
+        assertEquals(Role.FARMER, lerato.getRole());
+        assertTrue(lerato.getIsVerified());
+        assertTrue(passwordEncoder.matches("Secret123", lerato.getPassword()));
+        assertNotNull(lerato.getCreatedAt());
+
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM email_outbox WHERE status = 'PENDING'", Integer.class));
+    }
+
+    @Test
+    void rerunningAnImportSkipsEveryone() throws Exception {
+        String csv = "firstName,lastName,email,password\nNaledi,Dlamini,naledi@example.com,Secret123\n";
+        runImport(csv);
+        FarmerImportJob again = runImport(csv);
+
+        assertEquals(UploadStatus.COMPLETED, again.getStatus());
+        assertEquals(0, again.getImported().get());
+        assertEquals(1, again.getAlreadyRegistered().get());
+        assertEquals(1, userRepository.count());
+    }
+
+    @Test
+    void rejectsFilesWithoutRequiredColumns() throws Exception {
+        FarmerImportJob job = runImport("name,email\nThabo,thabo@example.com\n");
+
+        assertEquals(UploadStatus.FAILED, job.getStatus());
+        assertEquals("Missing required columns: firstname, lastname, password", job.getError());
+        assertEquals(0, userRepository.count());
+    }
+
+    @Test
+    void adminCannotBeSelfRegistered() {
+        RegisterRequest request = RegisterRequest.builder()
+                .firstName("Mpho")
+                .lastName("Sello")
+                .email("mpho@example.com")
+                .password("Secret123")
+                .confirmPassword("Secret123")
+                .role(Role.ADMIN)
+                .build();
+
+        assertEquals(1, validator.validate(request).size());
+        request.setRole(Role.BUYER);
+        assertTrue(validator.validate(request).isEmpty());
+    }
+
+    private FarmerImportJob runImport(String csv) throws Exception {
+        Path file = Files.createTempFile(tempDir, "members-", ".csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        FarmerImportJob job = new FarmerImportJob("test", "members.csv", 100);
+        farmerImportService.run(job, file);
+        return job;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.agribiz.Service.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageRenditionServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImageRenditionService service =
+            new ImageRenditionService(meterRegistry, 40_000_000L, 0.85f, DataSize.ofMegabytes(64));
+
+    @Test
+    void rendersSquareJpegsSmallerThanTheOriginal() throws Exception {
+        // Wide transparent PNG with a red centre: the crop must keep the centre and flatten alpha to white
+        BufferedImage original = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = original.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(1000, 0, 1000, 2000);
+        graphics.dispose();
+
+        Path source = Files.createTempFile("rendition-test-", ".png");
+        ImageIO.write(original, "png", source.toFile());
+
+        List<ImageRendition> renditions = service.render(source);
+        try {
+            assertEquals(RenditionSize.values().length, renditions.size());
+            for (ImageRendition rendition : renditions) {
+                BufferedImage decoded = ImageIO.read(rendition.file().toFile());
+                int pixels = rendition.size().getPixels();
+                assertEquals(pixels, decoded.getWidth());
+                assertEquals(pixels, decoded.getHeight());
+                assertEquals(Files.size(rendition.file()), rendition.bytes());
+                assertTrue(rendition.bytes() < Files.size(source));
+
+                Color centre = new Color(decoded.getRGB(pixels / 2, pixels / 2));
+                assertTrue(centre.getRed() > 200 && centre.getGreen() < 60, "centre should stay red");
+                Color edge = new Color(decoded.getRGB(1, pixels / 2));
+                assertTrue(edge.getRed() > 200 && edge.getGreen() > 200, "transparent area should be white");
+            }
+            assertEquals(1, meterRegistry.get("agribiz.media.rendition").timer().count());
+        } finally {
+            Files.deleteIfExists(source);
+            for (ImageRendition rendition : renditions) {
+                Files.deleteIfExists(rendition.file());
+            }
+        }
+    }
+
+    @Test
+    void appliesExifOrientationBeforeCropping() throws Exception {
+        // Stored landscape, red on the left; Orientation=6 means the camera was turned, so red belongs on top
+        BufferedImage stored = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = stored.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 400, 400);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(400, 0, 400, 400);
+        graphics.dispose();
+
+        Path source = Files.createTempFile("rendition-test-", ".jpg");
+        Files.write(source, withExifOrientation(jpeg(stored), 6));
+
+        List<ImageRendition> renditions = service.render(source);
+        try {
+            BufferedImage avatar = ImageIO.read(renditions.getFirst().file().toFile());
+            int pixels = avatar.getWidth();
+            Color top = new Color(avatar.getRGB(pixels / 2, pixels / 8));
+            Color bottom = new Color(avatar.getRGB(pixels / 2, pixels * 7 / 8));
+            assertTrue(top.getRed() > 200 && top.getBlue() < 60, "top should be red, was " + top);
+            assertTrue(bottom.getBlue() > 200 && bottom.getRed() < 60, "bottom should be blue, was " + bottom);
+        } finally {
+            Files.deleteIfExists(source);
+            for (ImageRendition rendition : renditions) {
+                Files.deleteIfExists(rendition.file());
+            }
+        }
+    }
+
+    @Test
+    void rendersAdobeCmykJpegs() throws Exception {
+        // Photoshop-style CMYK: samples stored inverted and flagged by an Adobe APP14 segment
+        WritableRaster cmyk = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, 200, 200, 4, null);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 200; x++) {
+                // Pure red: no cyan, full magenta and yellow, no black
+                cmyk.setPixel(x, y, new int[]{255, 0, 0, 255});
+            }
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(encoded)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(cmyk, null, null), null);
+        } finally {
+            writer.dispose();
+        }
+        Path source = Files.createTempFile("rendition-test-", ".jpg");
+        Files.write(source, withAdobeMarker(encoded.toByteArray()));
+
+        List<ImageRendition> renditions = service.render(source);
+        try {
+            BufferedImage avatar = ImageIO.read(renditions.getFirst().file().toFile());
+            Color centre = new Color(avatar.getRGB(avatar.getWidth() / 2, avatar.getHeight() / 2));
+            assertTrue(centre.getRed() > 200 && centre.getGreen() < 60 && centre.getBlue() < 60,
+                    "centre should be red, was " + centre);
+        } finally {
+            Files.deleteIfExists(source);
+            for (ImageRendition rendition : renditions) {
+                Files.deleteIfExists(rendition.file());
+            }
+        }
+    }
+
+    @Test
+    void rejectsJpegsWhoseBodyCannotBeDecoded() throws Exception {
+        byte[] jpeg = jpeg(new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB));
+        Path source = Files.createTempFile("rendition-test-", ".jpg");
+        try {
+            // Valid header, but flagged as arithmetic-coded, which the JDK decoder does not implement
+            for (int i = 2; i < jpeg.length - 1; i++) {
+                if ((jpeg[i] & 0xFF) == 0xFF && (jpeg[i + 1] & 0xFF) == 0xC0) {
+                    jpeg[i + 1] = (byte) 0xC9;
+                    break;
+                }
+            }
+            Files.write(source, jpeg);
+            IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class, () -> service.render(source));
+            assertEquals("Image could not be decoded", rejected.getMessage());
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Test
+    void rejectsImagesAboveThePixelLimit() throws Exception {
+        ImageRenditionService strict = new ImageRenditionService(meterRegistry, 1_000L, 0.85f, DataSize.ofMegabytes(64));
+        Path source = Files.createTempFile("rendition-test-", ".png");
+        try {
+            ImageIO.write(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB), "png", source.toFile());
+            assertThrows(IllegalArgumentException.class, () -> strict.render(source));
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    @Test
+    void rejectsFilesThatAreNotImages() throws Exception {
+        Path source = Files.createTempFile("rendition-test-", ".png");
+        try {
+            Files.writeString(source, "not an image");
+            assertThrows(IllegalArgumentException.class, () -> service.render(source));
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    private static byte[] jpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", bytes);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] withAdobeMarker(byte[] jpeg) {
+        ByteBuffer adobe = ByteBuffer.allocate(2 + 2 + 5 + 2 + 2 + 2 + 1);
+        adobe.putShort((short) 0xFFEE).putShort((short) (adobe.capacity() - 2));
+        adobe.put("Adobe".getBytes(StandardCharsets.ISO_8859_1)).putShort((short) 100).putShort((short) 0)
+                .putShort((short) 0).put((byte) 0);
+        return insertAfterSoi(jpeg, adobe.array());
+    }
+
+    // Inserts a minimal big-endian EXIF APP1 segment holding only the Orientation tag straight after SOI
+    private static byte[] withExifOrientation(byte[] jpeg, int orientation) {
+        ByteBuffer exif = ByteBuffer.allocate(2 + 2 + 6 + 8 + 2 + 12 + 4);
+        exif.putShort((short) 0xFFE1).putShort((short) (exif.capacity() - 2));
+        exif.put("Exif\0\0".getBytes(StandardCharsets.ISO_8859_1));
+        exif.put("MM".getBytes(StandardCharsets.ISO_8859_1)).putShort((short) 42).putInt(8);
+        exif.putShort((short) 1);
+        exif.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        exif.putInt(0);
+        return insertAfterSoi(jpeg, exif.array());
+    }
+
+    private static byte[] insertAfterSoi(byte[] jpeg, byte[] segment) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.writeBytes(segment);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+}
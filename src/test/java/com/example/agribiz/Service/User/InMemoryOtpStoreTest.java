@@ -0,0 +1,77 @@
+package com.example.agribiz.Service.User;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryOtpStoreTest {
+
+    private static final int PENDING = 1_000_000;
+    private static final byte[] HASH = new byte[32];
+
+    private final Instant start = Instant.parse("2026-01-01T00:00:00Z");
+    private final Clock clock = Clock.fixed(start, ZoneOffset.UTC);
+
+    @Test
+    void staysBoundedAndDrainsWithOneMillionPendingOtps() {
+        InMemoryOtpStore store = new InMemoryOtpStore(clock, PENDING, 1000, 1024);
+        Instant expiresAt = start.plus(Duration.ofMinutes(10));
+
+        for (int i = 0; i < PENDING; i++) {
+            store.save("farmer" + i + "@example.com", HASH, expiresAt);
+        }
+        assertEquals(PENDING, store.size());
+        assertThrows(IllegalStateException.class,
+                () -> store.save("one-too-many@example.com", HASH, expiresAt));
+
+        // Replacing a pending code must not count against the cap
+        store.save("farmer0@example.com", HASH, expiresAt);
+        assertEquals(PENDING, store.size());
+        assertEquals(PENDING + 1, store.scheduledTimeouts());
+
+        store.advance(expiresAt.toEpochMilli() - 1);
+        assertEquals(PENDING, store.size());
+
+        // The wheel frees both the entries and their timeouts on its own, before anyone looks a code up
+        store.advance(expiresAt.toEpochMilli());
+        assertEquals(0, store.size());
+        assertEquals(0, store.scheduledTimeouts());
+        // Found expired would mean the entry was still held and only dropped by this lookup
+        assertEquals(OtpVerificationResult.NOT_FOUND, store.verify("farmer0@example.com", HASH, 3));
+    }
+
+    @Test
+    void limitsAttemptsAndAcceptsCodeOnce() {
+        InMemoryOtpStore store = new InMemoryOtpStore(clock, 10, 1000, 64);
+        byte[] correct = new byte[]{1, 2, 3};
+        byte[] wrong = new byte[]{3, 2, 1};
+        store.save("farmer@example.com", correct, start.plusSeconds(600));
+
+        assertEquals(OtpVerificationResult.INVALID, store.verify("farmer@example.com", wrong, 3));
+        assertEquals(OtpVerificationResult.VERIFIED, store.verify("farmer@example.com", correct, 3));
+        assertEquals(OtpVerificationResult.NOT_FOUND, store.verify("farmer@example.com", correct, 3));
+
+        store.save("buyer@example.com", correct, start.plusSeconds(600));
+        store.verify("buyer@example.com", wrong, 2);
+        assertEquals(OtpVerificationResult.INVALID, store.verify("buyer@example.com", wrong, 2));
+        assertEquals(OtpVerificationResult.NOT_FOUND, store.verify("buyer@example.com", correct, 2));
+    }
+
+    @Test
+    void expiresEntriesMoreThanOneWheelTurnAhead() {
+        InMemoryOtpStore store = new InMemoryOtpStore(clock, 10, 1000, 8);
+        Instant expiresAt = start.plusSeconds(20);
+        store.save("farmer@example.com", HASH, expiresAt);
+
+        store.advance(start.plusSeconds(12).toEpochMilli());
+        assertEquals(1, store.size());
+
+        store.advance(expiresAt.toEpochMilli());
+        assertEquals(0, store.size());
+    }
+}
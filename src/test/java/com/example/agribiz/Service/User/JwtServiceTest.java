@@ -0,0 +1,87 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "NzJlM2I1ZTQ5ZmE2NGQ4Y2E5YjE4ZjU0YzI3ZDBlNjFhOWIzYzVkNGU3ZjgwOTFhMmIzYzRkNWU2Zjc4OTBh";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(meterRegistry);
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        // exp is stored in whole seconds, so this leaves between one and two seconds of validity
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 2_000L);
+        ReflectionTestUtils.setField(jwtService, "verifiedCacheMaxSize", 100L);
+        jwtService.init();
+    }
+
+    @Test
+    void repeatedVerificationIsServedFromTheCache() {
+        String token = jwtService.generateToken(user());
+
+        VerifiedToken first = jwtService.verify(token);
+        VerifiedToken second = jwtService.verify(token);
+
+        assertSame(first, second);
+        assertEquals(1, verifications("parsed"));
+        assertEquals(1, verifications("cached"));
+        assertEquals(42L, first.claim(JwtService.CLAIM_USER_ID, Number.class).longValue());
+    }
+
+    @Test
+    void cachedTokenIsDroppedOnceItExpires() throws InterruptedException {
+        String token = jwtService.generateToken(user());
+        VerifiedToken verified = jwtService.verify(token);
+
+        Thread.sleep(Math.max(0, Duration.between(Instant.now(), verified.expiresAt()).toMillis()) + 100);
+
+        // A cache hit would hand back the token without looking at exp again
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verify(token));
+        assertEquals(0, verifications("cached"));
+        assertEquals(1, verifications("expired"));
+    }
+
+    @Test
+    void tamperedTokenIsRejectedEvenAfterTheOriginalWasCached() {
+        String token = jwtService.generateToken(user());
+        jwtService.verify(token);
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(RuntimeException.class, () -> jwtService.verify(tampered));
+        assertEquals(1, verifications("invalid"));
+    }
+
+    private long verifications(String outcome) {
+        return meterRegistry.get("agribiz.jwt").tags("operation", "verify", "outcome", outcome).timer().count();
+    }
+
+    private static User user() {
+        return User.builder()
+                .id(42L)
+                .firstName("Ama")
+                .lastName("Owusu")
+                .email("ama@example.com")
+                .password("hash")
+                .role(Role.FARMER)
+                .build();
+    }
+}
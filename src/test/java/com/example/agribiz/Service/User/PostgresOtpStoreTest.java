@@ -0,0 +1,80 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "app.otp.store=postgres"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class, PostgresOtpStore.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostgresOtpStoreTest {
+
+    private static final String EMAIL = "ama@example.com";
+    private static final byte[] CODE = "123456".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] WRONG_CODE = "654321".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private PostgresOtpStore otpStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM pending_otps");
+        otpStore.save(EMAIL, CODE, Instant.now().plus(10, ChronoUnit.MINUTES));
+    }
+
+    @Test
+    void codeIsOnlyConsumedIfTheCallerCommits() {
+        OtpVerificationResult result = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return otpStore.verify(EMAIL, CODE, 5);
+        });
+
+        assertEquals(OtpVerificationResult.VERIFIED, result);
+        assertEquals(1, otpStore.size());
+        assertEquals(OtpVerificationResult.VERIFIED, otpStore.verify(EMAIL, CODE, 5));
+        assertEquals(OtpVerificationResult.NOT_FOUND, otpStore.verify(EMAIL, CODE, 5));
+    }
+
+    @Test
+    void wrongCodesAreCountedUntilTheCodeIsDropped() {
+        assertEquals(OtpVerificationResult.INVALID, otpStore.verify(EMAIL, WRONG_CODE, 3));
+        assertEquals(OtpVerificationResult.INVALID, otpStore.verify(EMAIL, WRONG_CODE, 3));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT attempts FROM pending_otps", Integer.class));
+
+        assertEquals(OtpVerificationResult.INVALID, otpStore.verify(EMAIL, WRONG_CODE, 3));
+        assertEquals(OtpVerificationResult.NOT_FOUND, otpStore.verify(EMAIL, CODE, 3));
+    }
+
+    @Test
+    void expiredCodeIsRejectedAndRemoved() {
+        otpStore.save(EMAIL, CODE, Instant.now().minusSeconds(1));
+
+        assertEquals(OtpVerificationResult.EXPIRED, otpStore.verify(EMAIL, CODE, 5));
+        assertEquals(0, otpStore.size());
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.ReplicaRoutingProperties;
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Exception.UploadJobNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        // Rows are changed behind Hibernate's back, so every lookup has to reach the database
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "app.media.store=local",
+        "app.media.local.root=${java.io.tmpdir}/agribiz-upload-test"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class, ProfileImageUploadService.class,
+        ImageRenditionService.class, MediaAssetService.class, LocalDiskMediaStore.class, UserCacheInvalidator.class,
+        CustomUserDetailsService.class, CredentialVersionService.class, ReplicaRoutingProperties.class,
+        ProfileImageUploadServiceTest.Metrics.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProfileImageUploadServiceTest {
+
+    static final String EMAIL = "ama@example.com";
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private ProfileImageUploadService uploadService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.media.local.root}")
+    private Path mediaRoot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        insertUser(jdbcTemplate);
+        try (Stream<Path> stored = Files.list(mediaRoot)) {
+            for (Path file : stored.toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void jobRunsThroughToCompletedAndSetsTheProfileImage() throws Exception {
+        ProfileImageUploadJob job = uploadService.submit(EMAIL, png("photo.png", Color.RED));
+        assertTrue(EnumSet.of(UploadStatus.QUEUED, UploadStatus.PROCESSING, UploadStatus.UPLOADING,
+                UploadStatus.COMPLETED).contains(job.getStatus()));
+
+        ProfileImageUploadJob finished = awaitFinished(uploadService, EMAIL, job.getId());
+
+        assertEquals(UploadStatus.COMPLETED, finished.getStatus());
+        assertNull(finished.getError());
+        assertEquals(finished.getTotalBytes(), finished.getBytesUploaded());
+        Map<String, Object> user = jdbcTemplate.queryForMap(
+                "SELECT profile_image_url, profile_thumbnail_url FROM users WHERE email = ?", EMAIL);
+        assertEquals(finished.getImageUrl(), user.get("profile_image_url"));
+        assertEquals(finished.getThumbnailUrl(), user.get("profile_thumbnail_url"));
+    }
+
+    @Test
+    void undecodableImageFailsTheJob() throws Exception {
+        MockMultipartFile notAnImage = new MockMultipartFile("file", "photo.png", "image/png",
+                "definitely not a png".getBytes());
+
+        ProfileImageUploadJob finished = awaitFinished(uploadService, EMAIL,
+                uploadService.submit(EMAIL, notAnImage).getId());
+
+        assertEquals(UploadStatus.FAILED, finished.getStatus());
+        assertEquals("Unsupported image format", finished.getError());
+        assertNull(jdbcTemplate.queryForObject("SELECT profile_image_url FROM users WHERE email = ?", String.class, EMAIL));
+    }
+
+    @Test
+    void sameImageTwiceIsStoredOnceWithOneReference() throws Exception {
+        MockMultipartFile image = png("photo.png", Color.RED);
+        ProfileImageUploadJob first = awaitFinished(uploadService, EMAIL, uploadService.submit(EMAIL, image).getId());
+        ProfileImageUploadJob second = awaitFinished(uploadService, EMAIL, uploadService.submit(EMAIL, image).getId());
+
+        assertEquals(UploadStatus.COMPLETED, second.getStatus());
+        assertEquals(first.getImageUrl(), second.getImageUrl());
+        assertEquals(List.of(1, 1), refCounts());
+        assertEquals(RenditionSize.values().length, storedFiles());
+    }
+
+    @Test
+    void replacingTheImageDeletesTheOldOne() throws Exception {
+        ProfileImageUploadJob first = awaitFinished(uploadService, EMAIL,
+                uploadService.submit(EMAIL, png("photo.png", Color.RED)).getId());
+        ProfileImageUploadJob second = awaitFinished(uploadService, EMAIL,
+                uploadService.submit(EMAIL, png("photo.png", Color.GREEN)).getId());
+
+        assertEquals(UploadStatus.COMPLETED, second.getStatus());
+        assertNotEquals(first.getImageUrl(), second.getImageUrl());
+        assertEquals(List.of(1, 1), refCounts());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM media_assets WHERE url IN (?, ?)",
+                Integer.class, first.getImageUrl(), first.getThumbnailUrl()));
+        assertEquals(RenditionSize.values().length, storedFiles());
+    }
+
+    @Test
+    void failedApplyLeavesNoAssetOrStoredImageBehind() throws Exception {
+        jdbcTemplate.update("DELETE FROM users");
+
+        ProfileImageUploadJob finished = awaitFinished(uploadService, EMAIL,
+                uploadService.submit(EMAIL, png("photo.png", Color.RED)).getId());
+
+        assertEquals(UploadStatus.FAILED, finished.getStatus());
+        assertEquals(List.of(), refCounts());
+        assertEquals(0, storedFiles());
+    }
+
+    @Test
+    void jobIsOnlyVisibleToItsOwner() throws Exception {
+        String jobId = uploadService.submit(EMAIL, png("photo.png", Color.BLUE)).getId();
+
+        assertThrows(UploadJobNotFoundException.class, () -> uploadService.getJob("kofi@example.com", jobId));
+        assertThrows(UploadJobNotFoundException.class, () -> uploadService.getJob(EMAIL, "no-such-job"));
+        awaitFinished(uploadService, EMAIL, jobId);
+    }
+
+    @Test
+    void rejectsNonImagesBeforeQueueing() {
+        MockMultipartFile text = new MockMultipartFile("file", "notes.txt", "text/plain", "hello".getBytes());
+
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                () -> uploadService.submit(EMAIL, text));
+        assertEquals("File must be an image", rejected.getMessage());
+    }
+
+    private List<Integer> refCounts() {
+        return jdbcTemplate.queryForList("SELECT ref_count FROM media_assets ORDER BY variant", Integer.class);
+    }
+
+    private long storedFiles() throws IOException {
+        try (Stream<Path> stored = Files.list(mediaRoot)) {
+            return stored.count();
+        }
+    }
+
+    static void insertUser(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM media_assets");
+        jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_verified, role, enabled, " +
+                "account_non_expired, account_non_locked, credentials_non_expired, credential_version, created_at) " +
+                "VALUES ('Ama', 'Owusu', ?, 'hash', true, 'FARMER', true, true, true, true, 0, now())", EMAIL);
+    }
+
+    static MockMultipartFile png(String name, Color colour) throws IOException {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(colour);
+        graphics.fillRect(0, 0, 640, 480);
+        graphics.dispose();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return new MockMultipartFile("file", name, "image/png", bytes.toByteArray());
+    }
+
+    static ProfileImageUploadJob awaitFinished(ProfileImageUploadService uploadService, String email, String jobId)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            ProfileImageUploadJob job = uploadService.getJob(email, jobId);
+            if (job.getStatus() == UploadStatus.COMPLETED || job.getStatus() == UploadStatus.FAILED) {
+                return job;
+            }
+            assertTrue(System.nanoTime() < deadline, "upload " + jobId + " still " + job.getStatus());
+            Thread.sleep(20);
+        }
+    }
+}
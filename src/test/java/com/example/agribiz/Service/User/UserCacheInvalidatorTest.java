@@ -0,0 +1,133 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.HibernateCacheConfiguration;
+import com.example.agribiz.Config.ReplicaRoutingProperties;
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "app.user-cache.cluster-invalidation.poll-timeout-ms=100"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class, HibernateCacheConfiguration.class,
+        UserCacheInvalidator.class, UserCacheInvalidationListener.class, CustomUserDetailsService.class,
+        CredentialVersionService.class, ReplicaRoutingProperties.class, UserCacheInvalidatorTest.Metrics.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserCacheInvalidatorTest {
+
+    private static final String EMAIL = "ama@example.com";
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserCacheInvalidator invalidator;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private CredentialVersionService credentialVersionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long userId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users");
+        userId = jdbcTemplate.queryForObject("INSERT INTO users (first_name, last_name, email, password, " +
+                "is_verified, role, enabled, account_non_expired, account_non_locked, credentials_non_expired, " +
+                "credential_version, created_at) VALUES ('Ama', 'Owusu', ?, 'old-hash', true, 'FARMER', true, " +
+                "true, true, true, 0, now()) RETURNING id", Long.class, EMAIL);
+        invalidator.evictAllLocal();
+    }
+
+    @Test
+    void notificationFromAnotherNodeEvictsTheCachedUser() {
+        assertEquals("old-hash", userDetailsService.loadUserByUsername(EMAIL).getPassword());
+        assertTrue(credentialVersionService.isCurrent(userId, 0));
+
+        // Another node changes the password and publishes, without touching this node's caches
+        jdbcTemplate.update("UPDATE users SET password = 'new-hash', credential_version = 1 WHERE id = ?", userId);
+        assertEquals("old-hash", userDetailsService.loadUserByUsername(EMAIL).getPassword());
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", UserCacheInvalidator.CHANNEL, userId + ":" + EMAIL);
+
+        await(() -> "new-hash".equals(userDetailsService.loadUserByUsername(EMAIL).getPassword()));
+        assertFalse(credentialVersionService.isCurrent(userId, 0));
+        assertTrue(credentialVersionService.isCurrent(userId, 1));
+    }
+
+    @Test
+    void readCachedDuringTheWritingTransactionIsEvictedAtCommit() {
+        userDetailsService.loadUserByUsername(EMAIL);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE users SET password = 'new-hash' WHERE id = ?", userId);
+            invalidator.invalidate(userId, EMAIL);
+            // Another request still sees the committed row and puts it back in the cache
+            User concurrent = (User) CompletableFuture
+                    .supplyAsync(() -> userDetailsService.loadUserByUsername(EMAIL))
+                    .join();
+            assertEquals("old-hash", concurrent.getPassword());
+        });
+
+        assertEquals("new-hash", userDetailsService.loadUserByUsername(EMAIL).getPassword());
+    }
+
+    @Test
+    void malformedPayloadIsIgnored() {
+        userDetailsService.loadUserByUsername(EMAIL);
+
+        assertDoesNotThrow(() -> invalidator.onNotification("not-a-user"));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.Dto.Request.UserDirectoryFilter;
+import com.example.agribiz.Dto.Response.UserDirectoryEntry;
+import com.example.agribiz.Dto.Response.UserDirectoryPage;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import com.example.agribiz.Repository.UserDirectoryRepository;
+import com.example.agribiz.Repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.StringWriter;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "app.admin.export.fetch-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class,
+        UserDirectoryService.class, UserDirectoryRepository.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserDirectoryServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 10, 9, 0);
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        // Two pairs share a timestamp so pages have to break ties on id
+        save("a@example.com", "Ama", Role.FARMER, true, BASE);
+        save("b@example.com", "Bongani", Role.FARMER, false, BASE);
+        save("c@example.com", "Chipo", Role.BUYER, true, BASE.plusDays(1));
+        save("d@example.com", "Dineo", Role.INVESTOR, true, BASE.plusDays(2));
+        save("e@example.com", "Ebo", Role.FARMER, true, BASE.plusDays(2));
+        save("f@example.com", "Fiso", Role.FARMER, false, BASE.plusDays(5));
+    }
+
+    @Test
+    void pagesThroughEveryUserNewestFirstWithoutRepeats() {
+        List<String> emails = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            UserDirectoryPage page = userDirectoryService.listUsers(new UserDirectoryFilter(), cursor, 4);
+            page.getUsers().forEach(user -> emails.add(user.getEmail()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(2, pages);
+        assertEquals(List.of("f@example.com", "e@example.com", "d@example.com", "c@example.com",
+                "b@example.com", "a@example.com"), emails);
+    }
+
+    @Test
+    void filtersByRoleVerificationAndCreationDate() {
+        UserDirectoryFilter unverifiedFarmers = UserDirectoryFilter.builder()
+                .role(Role.FARMER)
+                .verified(false)
+                .build();
+        assertEquals(List.of("f@example.com", "b@example.com"), emails(unverifiedFarmers));
+
+        UserDirectoryFilter createdRange = UserDirectoryFilter.builder()
+                .createdFrom(LocalDate.of(2025, 3, 11))
+                .createdTo(LocalDate.of(2025, 3, 12))
+                .build();
+        assertEquals(List.of("e@example.com", "d@example.com", "c@example.com"), emails(createdRange));
+    }
+
+    @Test
+    void exportsEveryMatchingRowAsCsv() throws Exception {
+        save("g@example.com", "=HYPERLINK(\"x\")", Role.BUYER, true, BASE.minusDays(1));
+
+        StringWriter csv = new StringWriter();
+        long rows = userDirectoryService.exportCsv(UserDirectoryFilter.builder().role(Role.BUYER).build(), csv);
+
+        assertEquals(2, rows);
+        String[] lines = csv.toString().split("\n");
+        assertEquals("id,first_name,last_name,email,role,verified,enabled,account_non_locked,phone_number,created_at",
+                lines[0]);
+        assertTrue(lines[1].contains(",Chipo,Dlamini,c@example.com,BUYER,true,true,true,,2025-03-11T09:00"), lines[1]);
+        // Formula-looking names are neutralised and quoted
+        assertTrue(lines[2].contains(",\"'=HYPERLINK(\"\"x\"\")\",Dlamini,"), lines[2]);
+        assertFalse(csv.toString().contains("hash"));
+    }
+
+    @Test
+    void rejectsTamperedCursors() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userDirectoryService.listUsers(new UserDirectoryFilter(), "not-a-cursor", 10));
+    }
+
+    private List<String> emails(UserDirectoryFilter filter) {
+        return userDirectoryService.listUsers(filter, null, 50).getUsers().stream()
+                .map(UserDirectoryEntry::getEmail)
+                .toList();
+    }
+
+    private void save(String email, String firstName, Role role, boolean verified, LocalDateTime createdAt) {
+        User user = userRepository.save(User.builder()
+                .firstName(firstName)
+                .lastName("Dlamini")
+                .email(email)
+                .password("hash")
+                .isVerified(verified)
+                .role(role)
+                .build());
+        jdbcTemplate.update("UPDATE users SET created_at = ? WHERE id = ?", Timestamp.valueOf(createdAt), user.getId());
+    }
+}
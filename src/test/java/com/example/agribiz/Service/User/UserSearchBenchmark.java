@@ -0,0 +1,145 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.Repository.UserSearchRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Search and autocomplete latency over a generated user table (a million rows by default, the size the
+// indexes are meant to hold p95 under 50 ms for).
+// Run with: mvn test -Dtest=UserSearchBenchmark -Dbenchmarks=true [-Dbenchmark.users=1000000]
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        SchemaMigrationConfiguration.class, UserSearchService.class, UserSearchRepository.class,
+        UserSearchBenchmark.PooledDatabase.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSearchBenchmark {
+
+    private static final int USERS = Integer.getInteger("benchmark.users", 1_000_000);
+    private static final int SAMPLES = 300;
+    private static final int WARMUP = 50;
+
+    // Pooled like production, so the numbers are query time rather than connection setup
+    @TestConfiguration
+    static class PooledDatabase {
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean(destroyMethod = "close")
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setDataSource(embeddedPostgres.getPostgresDatabase());
+            return dataSource;
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void measureLatency() throws Exception {
+        long start = System.nanoTime();
+        UserSearchDataset.generate(dataSource, USERS, 0.42);
+        System.out.printf("generated %,d users in %.1f s%n", USERS, (System.nanoTime() - start) / 1e9);
+
+        Random random = new Random(42);
+        List<Map<String, Object>> people = jdbcTemplate.queryForList(
+                "SELECT first_name, last_name, address, phone_number FROM users WHERE is_verified " +
+                        "ORDER BY id LIMIT ? OFFSET ?", SAMPLES, USERS / 2);
+
+        System.out.printf("%-20s %8s %8s %8s %8s%n", "query", "p50 ms", "p95 ms", "p99 ms", "hits");
+        run("name with a typo", people, person ->
+                typo(person.get("first_name") + " " + person.get("last_name"), random), false);
+        run("village with a typo", people, person ->
+                typo(((String) person.get("address")).split(",")[0], random), false);
+        run("phone fragment", people, person ->
+                ((String) person.get("phone_number")).substring(9), false);
+        run("name prefix", people, person ->
+                ((String) person.get("last_name")).substring(0, 3), true);
+    }
+
+    private void run(String label, List<Map<String, Object>> people, Function<Map<String, Object>, String> query,
+                     boolean autocomplete) {
+        List<String> queries = people.stream().map(query).toList();
+        for (String q : queries.subList(0, WARMUP)) {
+            call(q, autocomplete);
+        }
+
+        long[] nanos = new long[queries.size()];
+        int hits = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            if (!call(queries.get(i), autocomplete).isEmpty()) {
+                hits++;
+            }
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-20s %8.1f %8.1f %8.1f %8d%n", label,
+                percentile(nanos, 0.50), percentile(nanos, 0.95), percentile(nanos, 0.99), hits);
+        assertFalse(hits == 0, label + " found nothing");
+    }
+
+    private List<?> call(String q, boolean autocomplete) {
+        return autocomplete
+                ? userSearchService.autocomplete(q, null, UserSearchService.DEFAULT_LIMIT)
+                : userSearchService.search(q, null, UserSearchService.DEFAULT_LIMIT);
+    }
+
+    // Swaps one letter after the first two for a neighbouring one, the kind of slip a phone keyboard makes
+    private static String typo(String text, Random random) {
+        List<Integer> letters = new ArrayList<>();
+        for (int i = 2; i < text.length(); i++) {
+            if (Character.isLetter(text.charAt(i))) {
+                letters.add(i);
+            }
+        }
+        int at = letters.get(random.nextInt(letters.size()));
+        char replacement = (char) (Character.toLowerCase(text.charAt(at)) == 'z' ? 'y' : text.charAt(at) + 1);
+        return text.substring(0, at) + replacement + text.substring(at + 1);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.ceil(p * sorted.length) - 1] / 1e6;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.agribiz.Service.User;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Deterministic synthetic users for search benchmarks: syllable-built Basotho-style names, villages in the ten
+// districts and +266 phone numbers. The same seed always produces the same rows.
+final class UserSearchDataset {
+
+    private static final String SYLLABLES = "ARRAY['tha','bo','le','ra','to','pa','se','mo','ko','na'," +
+            "'tse','ho','ma','li','ne','di','ke','lo','ba','fo','ts''e','me','nt','so','ka']";
+    private static final String DISTRICTS = "ARRAY['Maseru','Berea','Leribe','Butha-Buthe','Mokhotlong'," +
+            "'Thaba-Tseka','Qacha''s Nek','Quthing','Mohale''s Hoek','Mafeteng']";
+
+    private UserSearchDataset() {
+    }
+
+    static void generate(DataSource dataSource, int users, double seed) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            // setseed only holds for the session it runs in, so the insert has to share the connection
+            statement.execute("SELECT setseed(" + seed + ")");
+            statement.execute("""
+                    INSERT INTO users (first_name, last_name, email, password, is_verified, role, enabled,
+                                       account_non_expired, account_non_locked, credentials_non_expired,
+                                       credential_version, address, phone_number, created_at, updated_at)
+                    SELECT initcap(s[1 + floor(random() * 25)::int] || s[1 + floor(random() * 25)::int]
+                                   || CASE WHEN random() < 0.4 THEN s[1 + floor(random() * 25)::int] ELSE '' END),
+                           initcap(s[1 + floor(random() * 25)::int] || s[1 + floor(random() * 25)::int]
+                                   || s[1 + floor(random() * 25)::int]),
+                           'bench' || g || '@example.com', 'hash',
+                           random() < 0.97,
+                           CASE WHEN random() < 0.7 THEN 'FARMER' WHEN random() < 0.8 THEN 'BUYER' ELSE 'INVESTOR' END,
+                           true, true, true, true, 0,
+                           'Ha ' || initcap(s[1 + floor(random() * 25)::int] || s[1 + floor(random() * 25)::int])
+                               || ', ' || d[1 + floor(random() * 10)::int],
+                           '+266 ' || (5 + floor(random() * 2)::int) || lpad(floor(random() * 1000)::text, 3, '0')
+                               || ' ' || lpad(floor(random() * 10000)::text, 4, '0'),
+                           localtimestamp - g * interval '1 minute', localtimestamp
+                    FROM generate_series(1, %d) g, (SELECT %s AS s, %s AS d) words
+                    """.formatted(users, SYLLABLES, DISTRICTS));
+            connection.commit();
+            connection.setAutoCommit(true);
+            statement.execute("VACUUM ANALYZE users");
+            // The dictionary filled up through the GIN pending list; until vacuumed the planner won't use its index
+            statement.execute("VACUUM ANALYZE user_search_words");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.agribiz.Service.User;
+
+import com.example.agribiz.Config.SchemaMigrationConfiguration;
+import com.example.agribiz.Dto.Response.UserSearchResult;
+import com.example.agribiz.EmbeddedPostgresTestConfiguration;
+import com.example.agribiz.Model.Role;
+import com.example.agribiz.Model.User;
+import com.example.agribiz.Repository.UserRepository;
+import com.example.agribiz.Repository.UserSearchRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({
+        EmbeddedPostgresTestConfiguration.class, SchemaMigrationConfiguration.class,
+        UserSearchService.class, UserSearchRepository.class, UserSearchServiceTest.Metrics.class
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSearchServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        save("Thabo", "Mokoena", Role.FARMER, "Ha Foso, Berea", "+266 5812 3456", true);
+        save("Thabang", "Molefe", Role.BUYER, "Roma", "+266 6201 0001", true);
+        save("Lerato", "Thabane", Role.FARMER, "Teyateyaneng", null, true);
+        save("Palesa", "Nkosi", Role.INVESTOR, "Ha Foso", "+266 5000 1111", true);
+        save("Thabo", "Unverified", Role.FARMER, "Ha Foso", null, false);
+        save("Thabo", "Admin", Role.ADMIN, "Maseru", null, true);
+        save("100%", "Organic", Role.FARMER, "Maseru", null, true);
+    }
+
+    @Test
+    void toleratesTyposAndRanksTheClosestMatchFirst() {
+        List<UserSearchResult> results = userSearchService.search("Thabp Mokoena", null, 10);
+
+        assertFalse(results.isEmpty());
+        assertEquals("Mokoena", results.get(0).getLastName());
+        assertTrue(results.get(0).getScore() > 0.5);
+        assertTrue(results.stream().noneMatch(r -> r.getLastName().equals("Unverified") || r.getRole() == Role.ADMIN));
+    }
+
+    @Test
+    void findsPeopleByVillageAndPhoneFragment() {
+        assertEquals(List.of("Mokoena", "Nkosi"), lastNames(userSearchService.search("ha fosso", null, 10)));
+        assertEquals(List.of("Mokoena"), lastNames(userSearchService.search("5812 34", null, 10)));
+    }
+
+    @Test
+    void findsPeopleUnderTheirNewNameAfterARename() {
+        User user = userRepository.findByEmail("palesa.nkosi@example.com").orElseThrow();
+        user.setLastName("Sekhonyana");
+        userRepository.save(user);
+
+        assertEquals(List.of("Sekhonyana"), lastNames(userSearchService.search("sekhonyna", null, 10)));
+    }
+
+    @Test
+    void filtersByRole() {
+        assertEquals(List.of("Molefe"), lastNames(userSearchService.search("thabang", Role.BUYER, 10)));
+        assertTrue(userSearchService.search("thabang", Role.INVESTOR, 10).isEmpty());
+    }
+
+    @Test
+    void autocompletesOnFirstOrLastNamePrefix() {
+        assertEquals(List.of("Thabane", "Molefe", "Mokoena"),
+                lastNames(userSearchService.autocomplete("Thab", null, 10)));
+        assertEquals(List.of("Mokoena", "Molefe"), lastNames(userSearchService.autocomplete("mo", null, 10)));
+        // LIKE wildcards in the prefix are matched literally
+        assertEquals(List.of("Organic"), lastNames(userSearchService.autocomplete("100%", null, 10)));
+        assertTrue(userSearchService.autocomplete("10_", null, 10).isEmpty());
+    }
+
+    @Test
+    void rejectsBlankSearches() {
+        assertThrows(IllegalArgumentException.class, () -> userSearchService.search("  ", null, 10));
+    }
+
+    private static List<String> lastNames(List<UserSearchResult> results) {
+        return results.stream().map(UserSearchResult::getLastName).toList();
+    }
+
+    private void save(String firstName, String lastName, Role role, String address, String phone, boolean verified) {
+        userRepository.save(User.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .email((firstName + "." + lastName + "@example.com").replace("%", "pct").toLowerCase())
+                .password("hash")
+                .isVerified(verified)
+                .role(role)
+                .address(address)
+                .phoneNumber(phone)
+                .build());
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.agribiz;
+
+import com.example.agribiz.Repository.UserRepository;
+import com.example.agribiz.Service.User.JwtService;
+import com.example.agribiz.Service.User.MediaStore;
+import com.example.agribiz.Service.User.StoredImage;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.NoSuchProviderException;
+import jakarta.mail.Provider;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Boots the whole application once on platform and once on virtual threads, with an SMTP server and media store
+// that block like slow real ones, and drives it with sign-ups and profile image uploads. Reports how fast the
+// requests were answered and how fast the work behind them (verification emails, stored renditions) finished.
+// Run with: mvn test -Dtest=VirtualThreadThroughputBenchmark -Dbenchmarks=true
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class VirtualThreadThroughputBenchmark {
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 1_200);
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 400);
+    // Every fourth request is an upload; the rest are sign-ups
+    private static final int UPLOAD_EVERY = 4;
+    private static final Duration SMTP_LATENCY = Duration.ofMillis(150);
+    private static final Duration UPLOAD_LATENCY = Duration.ofMillis(250);
+    private static final Duration COMPLETION_TIMEOUT = Duration.ofMinutes(5);
+
+    private record Result(double requestsPerSecond, double completedPerSecond) {
+    }
+
+    @Test
+    void compareThroughput() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%-18s %12s %14s%n", "mode", "requests/s", "completed/s");
+        System.out.printf("%-18s %12.0f %14.0f%n", "platform threads", platform.requestsPerSecond(),
+                platform.completedPerSecond());
+        System.out.printf("%-18s %12.0f %14.0f%n", "virtual threads", virtual.requestsPerSecond(),
+                virtual.completedPerSecond());
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start();
+             ConfigurableApplicationContext context = start(postgres, virtualThreads)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            SlowMediaStore mediaStore = context.getBean(SlowMediaStore.class);
+            List<String> tokens = uploaders(context, REQUESTS / UPLOAD_EVERY + 1);
+
+            // Warm up the connector, the JIT and the connection pool before measuring
+            fire(port, tokens, "warmup", REQUESTS / 4);
+            awaitCompletion(mediaStore, REQUESTS / 4);
+            SlowTransport.delivered.set(0);
+            mediaStore.stored.set(0);
+
+            long start = System.nanoTime();
+            int accepted = fire(port, tokens, "run", REQUESTS);
+            double answered = (System.nanoTime() - start) / 1e9;
+            awaitCompletion(mediaStore, REQUESTS);
+            double completed = (System.nanoTime() - start) / 1e9;
+
+            assertEquals(REQUESTS, accepted);
+            return new Result(REQUESTS / answered, REQUESTS / completed);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(EmbeddedPostgres postgres, boolean virtualThreads) {
+        return new SpringApplicationBuilder(AgriBizApplication.class, SlowIntegrations.class)
+                // Arguments, so they win over the test application.properties
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.mail.username=noreply@agribiz.example",
+                        "--jwt.secret=" + "c2VjcmV0LWtleS1mb3ItdGhlLXRocm91Z2hwdXQtYmVuY2htYXJrLW9ubHk=",
+                        "--jwt.expiration=3600000",
+                        "--app.name=AgriBiz",
+                        "--app.frontend.url=http://localhost",
+                        "--app.scheduling.enabled=true",
+                        "--app.mail.outbox.poll-interval-ms=50",
+                        "--app.media.store=slow",
+                        "--app.media.upload.queue-capacity=" + REQUESTS,
+                        "--app.rate-limit.enabled=false",
+                        // Cheap hashes and a deep queue, so sign-ups measure the blocking I/O rather than BCrypt
+                        "--app.security.password.strength=4",
+                        "--app.security.password-hashing.queue-capacity=" + REQUESTS,
+                        "--logging.level.root=WARN");
+    }
+
+    // Verified accounts to upload as, created directly so their sign-ups don't count towards the run
+    private static List<String> uploaders(ConfigurableApplicationContext context, int count) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        JwtService jwtService = context.getBean(JwtService.class);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String email = "uploader" + i + "@example.com";
+            jdbcTemplate.update("INSERT INTO users (first_name, last_name, email, password, is_verified, role, " +
+                    "enabled, account_non_expired, account_non_locked, credentials_non_expired, credential_version, " +
+                    "created_at, updated_at) VALUES ('Ama', 'Owusu', ?, 'hash', true, 'FARMER', true, true, true, " +
+                    "true, 0, now(), now())", email);
+            tokens.add(jwtService.generateToken(userRepository.findByEmail(email).orElseThrow()));
+        }
+        return tokens;
+    }
+
+    private static int fire(int port, List<String> tokens, String prefix, int requests) throws Exception {
+        AtomicInteger issued = new AtomicInteger();
+        AtomicInteger accepted = new AtomicInteger();
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clientThreads)
+                     .build();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CONCURRENCY; c++) {
+                clients.submit(() -> {
+                    int i;
+                    while ((i = issued.getAndIncrement()) < requests) {
+                        HttpRequest request = i % UPLOAD_EVERY == 0
+                                ? upload(port, tokens.get(i / UPLOAD_EVERY), prefix, i)
+                                : register(port, prefix + i + "@example.com");
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status == 200 || status == 201 || status == 202) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+        return accepted.get();
+    }
+
+    private static HttpRequest register(int port, String email) {
+        String body = "{\"firstName\":\"Kofi\",\"lastName\":\"Mensah\",\"email\":\"" + email + "\"," +
+                "\"password\":\"Harvest2024\",\"confirmPassword\":\"Harvest2024\",\"role\":\"FARMER\"}";
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static HttpRequest upload(int port, String token, String prefix, int i) throws IOException {
+        String boundary = "benchmark-" + i;
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"photo.png\"\r\n" +
+                "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(png((prefix + i).hashCode()));
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/auth/profile/image"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    // A different image every time, so deduplication never skips the slow upload
+    private static byte[] png(int seed) throws IOException {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, seed & 0xFFFFFF);
+        image.setRGB(1, 0, seed >>> 8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    // Each sign-up is done once its verification email is sent, each upload once both renditions are stored
+    private static void awaitCompletion(SlowMediaStore mediaStore, int requests)
+            throws InterruptedException {
+        int uploads = (requests + UPLOAD_EVERY - 1) / UPLOAD_EVERY;
+        int signUps = requests - uploads;
+        long deadline = System.nanoTime() + COMPLETION_TIMEOUT.toNanos();
+        while (SlowTransport.delivered.get() < signUps || mediaStore.stored.get() < 2 * uploads) {
+            assertTrue(System.nanoTime() < deadline, "only " + SlowTransport.delivered + " emails and "
+                    + mediaStore.stored + " renditions finished");
+            Thread.sleep(10);
+        }
+    }
+
+    @Configuration
+    static class SlowIntegrations {
+        @Bean
+        JavaMailSenderImpl mailSender() throws NoSuchProviderException {
+            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            mailSender.getSession().setProvider(new Provider(Provider.Type.TRANSPORT, "smtp",
+                    SlowTransport.class.getName(), "AgriBiz", "benchmark"));
+            return mailSender;
+        }
+
+        @Bean
+        SlowMediaStore mediaStore() {
+            return new SlowMediaStore();
+        }
+    }
+
+    // The outbox sends each batch over one SMTP session; the server is slow to accept it. Jakarta Mail
+    // instantiates transports reflectively, so the count is static.
+    public static class SlowTransport extends Transport {
+        static final AtomicInteger delivered = new AtomicInteger();
+
+        public SlowTransport(Session session, URLName urlname) {
+            super(session, urlname);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password) {
+            sleep(SMTP_LATENCY);
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) {
+            delivered.incrementAndGet();
+        }
+    }
+
+    static class SlowMediaStore implements MediaStore {
+        final AtomicInteger stored = new AtomicInteger();
+
+        @Override
+        public StoredImage store(Path file, LongConsumer progress) throws IOException {
+            long size = Files.size(file);
+            sleep(UPLOAD_LATENCY);
+            progress.accept(size);
+            stored.incrementAndGet();
+            String key = "slow/" + UUID.randomUUID();
+            return new StoredImage("https://media.example/" + key, key);
+        }
+
+        @Override
+        public void delete(String key) {
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}